@@ -0,0 +1,91 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingMapper;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serialization throughput of a booking page rendered from entities, as the booking endpoints used to answer,
+ * versus the same page rendered from {@link BookingResponse}. The payload size is reported as the
+ * {@code bytesPerPage} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingResponseBenchmark {
+    @Param("100")
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private List<Booking> entities;
+    private List<BookingResponse> responses;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        entities = new ArrayList<>();
+        for (int i = 1; i <= pageSize; i++) {
+            User owner = new User(i, "owner" + i, "owner" + i + "@email.org");
+            User requester = new User(pageSize + i, "requester" + i, "requester" + i + "@email.org");
+            User booker = new User(2 * pageSize + i, "booker" + i, "booker" + i + "@email.org");
+            ItemRequest request = new ItemRequest(i, now, "looking for a cordless drill for the weekend", requester);
+            Item item = new Item(i, "drill" + i, "cordless drill with two batteries and a case", true,
+                    request, owner, 0);
+            entities.add(new Booking(i, now.plusDays(i), now.plusDays(i + 1), item, booker,
+                    BookingStatus.WAITING, 0));
+        }
+        responses = entities.stream()
+                .map(BookingMapper::toBookingResponse)
+                .collect(Collectors.toList());
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long bytesPerPage;
+    }
+
+    @Benchmark
+    public byte[] entities(Payload payload) throws JsonProcessingException {
+        return write(entities, payload);
+    }
+
+    @Benchmark
+    public byte[] responses(Payload payload) throws JsonProcessingException {
+        return write(responses, payload);
+    }
+
+    private byte[] write(Object page, Payload payload) throws JsonProcessingException {
+        byte[] bytes = objectMapper.writeValueAsBytes(page);
+        payload.bytesPerPage = bytes.length;
+        return bytes;
+    }
+}
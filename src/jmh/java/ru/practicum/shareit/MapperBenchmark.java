@@ -0,0 +1,78 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingMapper;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.booking.dto.PartBookingDto;
+import ru.practicum.shareit.item.ItemMapper;
+import ru.practicum.shareit.item.comment.Comment;
+import ru.practicum.shareit.item.comment.CommentDto;
+import ru.practicum.shareit.item.comment.CommentMapper;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private Item item;
+    private ItemDto itemDto;
+    private Booking booking;
+    private Comment comment;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        User owner = new User(1, "owner", "owner@email.org");
+        User booker = new User(2, "booker", "booker@email.org");
+        ItemRequest request = new ItemRequest(1, now, "looking for a drill", booker);
+        item = new Item(1, "drill", "cordless drill with two batteries", true, request, owner, 0);
+        itemDto = ItemMapper.toItemDto(item);
+        booking = new Booking(1, now.plusDays(1), now.plusDays(2), item, booker, BookingStatus.WAITING, 0);
+        comment = new Comment(1, "worked fine, returned on time", item, booker, now);
+    }
+
+    @Benchmark
+    public ItemDto itemToDto() {
+        return ItemMapper.toItemDto(item);
+    }
+
+    @Benchmark
+    public Item dtoToItem() {
+        return ItemMapper.toItem(itemDto);
+    }
+
+    @Benchmark
+    public BookingResponse bookingToResponse() {
+        return BookingMapper.toBookingResponse(booking);
+    }
+
+    @Benchmark
+    public PartBookingDto bookingToPartDto() {
+        return BookingMapper.toPartBookingDto(booking);
+    }
+
+    @Benchmark
+    public CommentDto commentToDto() {
+        return CommentMapper.toCommentDto(comment);
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.shareit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.ItemRequestService;
+import ru.practicum.shareit.user.User;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Items served to their owners and to other users through the second-level cache, with items drawn from the same
+ * Zipf distribution {@link DatasetGenerator} books them with, and one request drawn the same way for every fourth
+ * item. The caches start empty; their hit ratios and the heap they hold are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+    private static final int USERS = 10_000;
+    private static final int ITEMS = 100_000;
+    private static final int REQUESTS = 20_000;
+
+    private final DatasetGenerator.ZipfSampler items = new DatasetGenerator.ZipfSampler(ITEMS, 1.0);
+    private final DatasetGenerator.ZipfSampler requests = new DatasetGenerator.ZipfSampler(REQUESTS, 1.0);
+    private final SplittableRandom random = new SplittableRandom(7);
+    private int lookups;
+
+    private ConfigurableApplicationContext context;
+    private ItemService itemService;
+    private ItemRequestService itemRequestService;
+    private Statistics statistics;
+    private long emptyHeap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, InterruptedException {
+        context = new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("logging.level.root=WARN", "spring.jmx.enabled=false",
+                        "logging.level.org.springframework.transaction.interceptor=WARN",
+                        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN")
+                .run();
+        try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+            DatasetGenerator.builder()
+                    .users(USERS)
+                    .items(ITEMS)
+                    .requests(REQUESTS)
+                    .bookings(0)
+                    .comments(0)
+                    .build()
+                    .generate(connection);
+        }
+        itemService = context.getBean(ItemService.class);
+        itemRequestService = context.getBean(ItemRequestService.class);
+        EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        entityManagerFactory.getCache().evictAll();
+        emptyHeap = usedHeap();
+        statistics.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        long filledHeap = usedHeap();
+        System.out.printf("%n%d lookups, %d statements%n", lookups, statistics.getPrepareStatementCount());
+        for (Class<?> entity : new Class<?>[]{User.class, Item.class, ItemRequest.class}) {
+            report(entity.getName());
+        }
+        report(CacheConfig.USER_EMAIL_REGION);
+        System.out.printf("heap held by the caches: %d KB%n", (filledHeap - emptyHeap) / 1024);
+        context.close();
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        blackhole.consume(itemService.getItemById(1 + random.nextInt(USERS), 1 + items.next(random)));
+        if (lookups++ % 4 == 0) {
+            int requestId = 1 + requests.next(random);
+            blackhole.consume(itemRequestService.getRequestById(1 + random.nextInt(USERS), requestId));
+        }
+    }
+
+    private void report(String region) {
+        CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+        long hits = regionStatistics.getHitCount();
+        long misses = regionStatistics.getMissCount();
+        System.out.printf("%s: %d hits, %d misses, hit ratio %.3f%n", region, hits, misses,
+                hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
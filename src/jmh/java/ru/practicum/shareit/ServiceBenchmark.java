@@ -0,0 +1,110 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.ItemRequestService;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service calls end to end against the embedded H2 of the test profile, loaded by {@link DatasetGenerator}.
+ * The generated skew makes user 1 the owner with the most items and item 1 the most booked one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final int USERS = 1_000;
+    private static final int ITEMS = 20_000;
+    private static final int REQUESTS = 5_000;
+    private static final int BOOKINGS = 200_000;
+    private static final int COMMENTS = 50_000;
+    private static final int HOT_OWNER = 1;
+    private static final int BOOKER = 2;
+    private static final int HOT_ITEM = 1;
+
+    private final PageRequest page = PageRequest.of(0, 20);
+
+    private ConfigurableApplicationContext context;
+    private ItemService itemService;
+    private BookingService bookingService;
+    private ItemRequestService itemRequestService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        context = new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("logging.level.root=WARN", "spring.jmx.enabled=false")
+                .run();
+        try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+            DatasetGenerator.builder()
+                    .users(USERS)
+                    .items(ITEMS)
+                    .requests(REQUESTS)
+                    .bookings(BOOKINGS)
+                    .comments(COMMENTS)
+                    .build()
+                    .generate(connection);
+        }
+        itemService = context.getBean(ItemService.class);
+        bookingService = context.getBean(BookingService.class);
+        itemRequestService = context.getBean(ItemRequestService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ItemDto itemForOwner() {
+        return itemService.getItemById(HOT_OWNER, HOT_ITEM);
+    }
+
+    @Benchmark
+    public List<ItemDto> itemsOfHotOwner() {
+        return itemService.getAllItemsUser(HOT_OWNER, page);
+    }
+
+    @Benchmark
+    public List<BookingResponse> bookingsOfHotOwner() {
+        return bookingService.getBookingsByOwner(HOT_OWNER, "ALL", page);
+    }
+
+    @Benchmark
+    public List<BookingResponse> futureBookingsOfBooker() {
+        return bookingService.getBookingsByBooker(BOOKER, "FUTURE", page);
+    }
+
+    @Benchmark
+    public List<ItemRequestDto> requestsOfOthers() {
+        return itemRequestService.getAll(HOT_OWNER, 0, 20);
+    }
+}
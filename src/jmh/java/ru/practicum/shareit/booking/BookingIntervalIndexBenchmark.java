@@ -0,0 +1,143 @@
+package ru.practicum.shareit.booking;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.item.exception.ConflictException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Contention on {@link BookingIntervalIndex}: bookers reserving random dates of one hot item versus the same
+ * bookers spread over many items, with a simulated save latency, while cancellations with the same latency free
+ * accepted bookings.
+ * Accepted and rejected reservations are reported as counters, and every iteration fails if two active
+ * bookings of an item overlap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingIntervalIndexBenchmark {
+    @Param({"1", "64"})
+    public int itemCount;
+
+    @Param("50")
+    public long saveMicros;
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Booking> accepted = new ConcurrentLinkedQueue<>();
+
+    private BookingIntervalIndex index;
+    private List<Item> items;
+    private User booker;
+    private LocalDateTime base;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new BookingIntervalIndex(Mockito.mock(BookingRepository.class));
+        User owner = new User(1, "owner", "owner@email.org");
+        booker = new User(2, "booker", "booker@email.org");
+        items = new ArrayList<>();
+        for (int id = 1; id <= itemCount; id++) {
+            items.add(new Item(id, "item", "about", true, null, owner, null));
+        }
+        base = LocalDateTime.now().plusDays(1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkOverlaps() {
+        int overlaps = countOverlaps();
+        if (overlaps > 0) {
+            throw new IllegalStateException(overlaps + " accepted bookings overlap");
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long accepted;
+        public long rejected;
+    }
+
+    @Benchmark
+    @Group("booking")
+    @GroupThreads(6)
+    public Booking reserve(Outcomes outcomes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime start = base.plusHours(random.nextInt(24 * 365));
+        Booking booking = new Booking(null, start, start.plusHours(1 + random.nextInt(48)),
+                items.get(random.nextInt(itemCount)), booker, BookingStatus.WAITING, null);
+        try {
+            Booking saved = index.reserve(booking, () -> {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(saveMicros));
+                booking.setId(ids.incrementAndGet());
+                return booking;
+            });
+            accepted.add(saved);
+            outcomes.accepted++;
+            return saved;
+        } catch (ConflictException e) {
+            outcomes.rejected++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    @Group("booking")
+    @GroupThreads(2)
+    public Booking cancel() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(saveMicros));
+        Booking booking = accepted.poll();
+        if (booking != null) {
+            booking.setStatus(BookingStatus.CANCELED);
+            index.onStatusChanged(booking);
+        }
+        return booking;
+    }
+
+    private int countOverlaps() {
+        List<Booking> bookings = new ArrayList<>(accepted);
+        bookings.sort(Comparator.comparing((Booking booking) -> booking.getItem().getId())
+                .thenComparing(Booking::getStart));
+        int overlaps = 0;
+        Booking latest = null;
+        for (Booking booking : bookings) {
+            if (latest != null && latest.getItem().getId().equals(booking.getItem().getId())
+                    && booking.getStart().isBefore(latest.getEnd())) {
+                overlaps++;
+            }
+            if (latest == null || !latest.getItem().getId().equals(booking.getItem().getId())
+                    || booking.getEnd().isAfter(latest.getEnd())) {
+                latest = booking;
+            }
+        }
+        return overlaps;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.practicum.shareit.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ItemService#findLastBooking} and {@link ItemService#findNextBooking} over the bookings of one item,
+ * sorted by start as the repository returns them, half of them in the past.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingSelectionBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int bookings;
+
+    private List<Booking> sortedByStart;
+
+    @Setup
+    public void setUp() {
+        User owner = new User(1, "owner", "owner@email.org");
+        User booker = new User(2, "booker", "booker@email.org");
+        Item item = new Item(1, "drill", "about drill", true, null, owner, 0);
+        LocalDateTime first = LocalDateTime.now().minusHours(bookings / 2);
+        sortedByStart = new ArrayList<>(bookings);
+        for (int i = 0; i < bookings; i++) {
+            LocalDateTime start = first.plusHours(i);
+            sortedByStart.add(new Booking(i, start, start.plusMinutes(30), item, booker, BookingStatus.APPROVED, 0));
+        }
+    }
+
+    @Benchmark
+    public Optional<Booking> lastBooking() {
+        return ItemService.findLastBooking(sortedByStart);
+    }
+
+    @Benchmark
+    public Optional<Booking> nextBooking() {
+        return ItemService.findNextBooking(sortedByStart);
+    }
+}
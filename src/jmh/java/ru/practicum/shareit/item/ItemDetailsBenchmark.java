@@ -0,0 +1,99 @@
+package ru.practicum.shareit.item;
+
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.comment.CommentRepository;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Item page latency of {@link ItemService#getItemById} for the owner, with queries run one after another and
+ * fanned out by {@link ItemDetailsFanOut}, under eight concurrent clients. Repositories are stubs taking a
+ * simulated round trip of 2-4 ms, one query in fifty taking 20-40 ms instead.
+ * Sampled, so the result carries p50, p99 and the maximum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(ItemDetailsBenchmark.CLIENTS)
+@Fork(1)
+public class ItemDetailsBenchmark {
+    static final int CLIENTS = 8;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private User owner;
+    private Item item;
+    private ItemDetailsFanOut fanOut;
+    private ItemService itemService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        owner = UtilsForTest.makeUser(1);
+        item = UtilsForTest.makeItem(1, true, owner, null);
+        ItemRepository itemRepository = Mockito.mock(ItemRepository.class);
+        BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+        CommentRepository commentRepository = Mockito.mock(CommentRepository.class);
+        UserCache userCache = Mockito.mock(UserCache.class);
+        when(userCache.get(anyInt())).thenReturn(owner);
+        when(itemRepository.findById(anyInt())).thenAnswer(withLatency(Optional.of(item)));
+        when(bookingRepository.findAllByItemIdOrderByStart(anyInt())).thenAnswer(withLatency(
+                List.of(UtilsForTest.makeBooking(1, item, owner, BookingStatus.APPROVED))));
+        when(commentRepository.findAllByItemIdOrderByCreatedDesc(anyInt())).thenAnswer(withLatency(
+                List.of(UtilsForTest.makeComment(1, item, owner))));
+        fanOut = new ItemDetailsFanOut(parallel, 2 * CLIENTS, Duration.ofSeconds(2));
+        itemService = new ItemService(itemRepository, userCache, bookingRepository, commentRepository,
+                null, null, null, fanOut, null, null, null, null, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fanOut.destroy();
+    }
+
+    @Benchmark
+    public ItemDto itemForOwner() {
+        return itemService.getItemById(owner.getId(), item.getId());
+    }
+
+    private static <T> Answer<T> withLatency(T result) {
+        return invocation -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long micros = random.nextInt(50) == 0 ? random.nextLong(20_000, 40_000) : random.nextLong(2_000, 4_000);
+            Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+            return result;
+        };
+    }
+}
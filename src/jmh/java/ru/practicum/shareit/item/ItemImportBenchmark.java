@@ -0,0 +1,87 @@
+package ru.practicum.shareit.item;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.item.dto.ItemBatchResult;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Items created per second by {@link ItemService#createItem} one item at a time, as {@code POST /items} does,
+ * and by {@link ItemService#createItems} in batches of {@link ItemService#MAX_BATCH}, as {@code POST /items/batch}
+ * does, into the embedded H2 of the test profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ItemImportBenchmark {
+    private ConfigurableApplicationContext context;
+    private ItemService itemService;
+    private int ownerId;
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("logging.level.root=WARN", "spring.jmx.enabled=false",
+                        "logging.level.org.springframework.transaction.interceptor=WARN",
+                        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN")
+                .run();
+        itemService = context.getBean(ItemService.class);
+        ownerId = context.getBean(UserService.class)
+                .create(new User(null, "owner", "owner@example.org")).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ItemDto oneAtATime() {
+        return itemService.createItem(ownerId, item(created++));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ItemService.MAX_BATCH)
+    public List<ItemBatchResult> batch() {
+        List<ItemDto> batch = new ArrayList<>(ItemService.MAX_BATCH);
+        for (int i = 0; i < ItemService.MAX_BATCH; i++) {
+            batch.add(item(created++));
+        }
+        return itemService.createItems(ownerId, batch);
+    }
+
+    private static ItemDto item(int i) {
+        return ItemDto.builder()
+                .name("drill " + i)
+                .description("a drill in good condition")
+                .available(true)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.shareit.item.search;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency of {@link ItemSearchIndex} over generated items, for the first page and a page far into the
+ * results. The heap held per indexed item and the time to build the index are reported as the
+ * {@code bytesPerItem} and {@code buildMillis} counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSearchIndexBenchmark {
+    private static final String[] WORDS = {"drill", "ladder", "saw", "hammer", "tent", "bike", "kayak", "camera",
+            "projector", "mixer", "vacuum", "cleaner", "wrench", "sander", "jigsaw", "grill", "table", "chair",
+            "speaker", "guitar", "scooter", "helmet", "router", "printer", "lawnmower", "heater", "fan", "boat"};
+
+    @Param("1000000")
+    public int items;
+
+    @Param({"drill", "ladder", "la", "jigs", "mower", "speaker guitar", "zzz"})
+    public String query;
+
+    @Param({"0", "500"})
+    public int page;
+
+    private ItemSearchIndex index;
+    private PageRequest pageRequest;
+    private long bytesPerItem;
+    private long buildMillis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        User owner = new User(1, "owner", "owner@email.org");
+        index = new ItemSearchIndex(null);
+        pageRequest = PageRequest.of(page, 20);
+
+        long heapBefore = usedHeap();
+        long started = System.nanoTime();
+        for (int id = 1; id <= items; id++) {
+            index.onSaved(new Item(id, phrase(random, 2), phrase(random, 12), true, null, owner, null));
+        }
+        buildMillis = (System.nanoTime() - started) / 1_000_000;
+        bytesPerItem = (usedHeap() - heapBefore) / items;
+    }
+
+    /**
+     * Carries the figures measured while building the index into the results; JMH resets them every iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerItem;
+        public long buildMillis;
+    }
+
+    @Benchmark
+    public List<ItemDto> search(Footprint footprint) {
+        footprint.bytesPerItem = bytesPerItem;
+        footprint.buildMillis = buildMillis;
+        return index.search(query, pageRequest);
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            phrase.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return phrase.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
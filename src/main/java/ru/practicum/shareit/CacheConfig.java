@@ -0,0 +1,58 @@
+package ru.practicum.shareit;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.User;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Caffeine caches behind the Hibernate second-level cache regions of users, items and item requests.
+ * Entries are bounded in number and in age, the age bound limiting how long a change made by another
+ * instance stays invisible. Each application context gets its own cache manager, so contexts on
+ * different databases never share entries.
+ */
+@Configuration
+public class CacheConfig {
+    public static final String USER_EMAIL_REGION = User.class.getName() + "##NaturalId";
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("shareit:" + UUID.randomUUID()), getClass().getClassLoader());
+        createRegion(cacheManager, User.class.getName(), 10_000);
+        createRegion(cacheManager, USER_EMAIL_REGION, 10_000);
+        createRegion(cacheManager, Item.class.getName(), 100_000);
+        createRegion(cacheManager, ItemRequest.class.getName(), 20_000);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region, long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TTL.toNanos()));
+        configuration.setStoreByValue(false);
+        cacheManager.createCache(region, configuration);
+    }
+}
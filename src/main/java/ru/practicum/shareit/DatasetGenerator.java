@@ -0,0 +1,346 @@
+package ru.practicum.shareit;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Bulk-loads a synthetic data set with JDBC batches, appending after the rows already present.
+ * Item owners and booked items follow a Zipf distribution, so the lowest generated user and item ids
+ * are the hottest; bookers and comment authors are uniform. Bookings are spread over a year around now.
+ * Run with {@code java -cp ... ru.practicum.shareit.DatasetGenerator --url=jdbc:postgresql://... --bookings=10000000};
+ * the schema is migrated first. On PostgreSQL add {@code reWriteBatchedInserts=true} to the url, on an H2 file
+ * {@code RETENTION_TIME=0} keeps the store from growing with every committed batch.
+ */
+@Slf4j
+@Builder
+public class DatasetGenerator {
+    private static final String[] THINGS = {"drill", "saw", "ladder", "tent", "bike", "kayak", "projector",
+            "camera", "sander", "mixer", "grill", "scooter", "telescope", "vacuum", "tripod", "speaker"};
+    private static final int PAST_DAYS = 270;
+    private static final int FUTURE_DAYS = 90;
+
+    @Builder.Default
+    private final int users = 10_000;
+    @Builder.Default
+    private final int items = 100_000;
+    @Builder.Default
+    private final int requests = 20_000;
+    @Builder.Default
+    private final int bookings = 1_000_000;
+    @Builder.Default
+    private final int comments = 200_000;
+    /**
+     * Zipf exponent of item owners and booked items; 0 spreads them evenly.
+     */
+    @Builder.Default
+    private final double skew = 1.0;
+    @Builder.Default
+    private final long seed = 42;
+    @Builder.Default
+    private final int batchSize = 10_000;
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = parseOptions(args);
+        String url = options.getOrDefault("url", "jdbc:h2:file:./target/shareit-dataset;RETENTION_TIME=0");
+        String user = options.getOrDefault("user", "sa");
+        String password = options.getOrDefault("password", "");
+
+        Flyway.configure()
+                .dataSource(url, user, password)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        DatasetGeneratorBuilder builder = builder();
+        options.forEach((name, value) -> {
+            switch (name) {
+                case "users":
+                    builder.users(Integer.parseInt(value));
+                    break;
+                case "items":
+                    builder.items(Integer.parseInt(value));
+                    break;
+                case "requests":
+                    builder.requests(Integer.parseInt(value));
+                    break;
+                case "bookings":
+                    builder.bookings(Integer.parseInt(value));
+                    break;
+                case "comments":
+                    builder.comments(Integer.parseInt(value));
+                    break;
+                case "skew":
+                    builder.skew(Double.parseDouble(value));
+                    break;
+                case "seed":
+                    builder.seed(Long.parseLong(value));
+                    break;
+                case "batch-size":
+                    builder.batchSize(Integer.parseInt(value));
+                    break;
+                case "url":
+                case "user":
+                case "password":
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option --" + name);
+            }
+        });
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            builder.build().generate(connection);
+        }
+    }
+
+    /**
+     * Inserts the data set over the given connection, committing after every batch.
+     */
+    public void generate(Connection connection) throws SQLException {
+        if (users < 2) {
+            throw new IllegalArgumentException("at least two users are needed so that nobody books their own item");
+        }
+        if (items == 0 && (bookings > 0 || comments > 0)) {
+            throw new IllegalArgumentException("bookings and comments need items");
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            SplittableRandom random = new SplittableRandom(seed);
+            LocalDateTime now = LocalDateTime.now();
+            int userBase = maxId(connection, "users", "user_id");
+            int requestBase = maxId(connection, "item_request", "item_request_id");
+            int itemBase = maxId(connection, "items", "item_id");
+
+            long started = System.currentTimeMillis();
+            insertUsers(connection, userBase);
+            logProgress("users", users, started);
+            insertRequests(connection, random, now, userBase, requestBase);
+            logProgress("requests", requests, started);
+            int[] itemOwners = insertItems(connection, random, userBase, requestBase, itemBase);
+            logProgress("items", items, started);
+            insertBookings(connection, random, now, userBase, itemBase, itemOwners);
+            logProgress("bookings", bookings, started);
+            insertComments(connection, random, now, userBase, itemBase);
+            logProgress("comments", comments, started);
+
+            restartIdentity(connection, "users", "user_id", userBase + users);
+            restartIdentity(connection, "item_request", "item_request_id", requestBase + requests);
+            restartSequence(connection, "items_seq", itemBase + items);
+            connection.commit();
+            log.info("Generated {} users, {} items, {} requests, {} bookings, {} comments in {} ms",
+                    users, items, requests, bookings, comments, System.currentTimeMillis() - started);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void insertUsers(Connection connection, int userBase) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO users (user_id, name, email) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= users; i++) {
+                int id = userBase + i;
+                statement.setInt(1, id);
+                statement.setString(2, "user" + id);
+                statement.setString(3, "user" + id + "@example.org");
+                addBatch(connection, statement, i, users);
+            }
+        }
+    }
+
+    private void insertRequests(Connection connection, SplittableRandom random, LocalDateTime now,
+                                int userBase, int requestBase) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO item_request (item_request_id, created, description, user_id) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= requests; i++) {
+                statement.setInt(1, requestBase + i);
+                statement.setObject(2, now.minusMinutes(random.nextInt(PAST_DAYS * 24 * 60)));
+                statement.setString(3, "looking for a " + THINGS[random.nextInt(THINGS.length)]);
+                statement.setInt(4, userBase + 1 + random.nextInt(users));
+                addBatch(connection, statement, i, requests);
+            }
+        }
+    }
+
+    private int[] insertItems(Connection connection, SplittableRandom random,
+                              int userBase, int requestBase, int itemBase) throws SQLException {
+        ZipfSampler owners = new ZipfSampler(users, skew);
+        int[] itemOwners = new int[items];
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO items (item_id, name, description, available, owner_id, request_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= items; i++) {
+                String thing = THINGS[random.nextInt(THINGS.length)];
+                itemOwners[i - 1] = userBase + 1 + owners.next(random);
+                statement.setInt(1, itemBase + i);
+                statement.setString(2, thing + " " + i);
+                statement.setString(3, "a " + thing + " in good condition");
+                statement.setBoolean(4, random.nextInt(10) != 0);
+                statement.setInt(5, itemOwners[i - 1]);
+                if (requests > 0 && random.nextInt(10) == 0) {
+                    statement.setInt(6, requestBase + 1 + random.nextInt(requests));
+                } else {
+                    statement.setObject(6, null);
+                }
+                addBatch(connection, statement, i, items);
+            }
+        }
+        return itemOwners;
+    }
+
+    private void insertBookings(Connection connection, SplittableRandom random, LocalDateTime now,
+                                int userBase, int itemBase, int[] itemOwners) throws SQLException {
+        ZipfSampler bookedItems = new ZipfSampler(items, skew);
+        long pastMinutes = PAST_DAYS * 24L * 60;
+        long futureMinutes = FUTURE_DAYS * 24L * 60;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO bookings (start_time, end_time, item_id, booker_id, status) " +
+                        "VALUES (?, ?, ?, ?, CAST(? AS BOOKING_STATUS))")) {
+            for (int i = 1; i <= bookings; i++) {
+                int item = bookedItems.next(random);
+                int booker = userBase + 1 + random.nextInt(users);
+                if (booker == itemOwners[item]) {
+                    booker = booker == userBase + users ? userBase + 1 : booker + 1;
+                }
+                LocalDateTime start = now.plusMinutes(random.nextLong(-pastMinutes, futureMinutes));
+                LocalDateTime end = start.plusHours(1 + random.nextInt(7 * 24));
+                statement.setObject(1, start);
+                statement.setObject(2, end);
+                statement.setInt(3, itemBase + 1 + item);
+                statement.setInt(4, booker);
+                statement.setString(5, status(random, end.isBefore(now)).name());
+                addBatch(connection, statement, i, bookings);
+            }
+        }
+    }
+
+    private void insertComments(Connection connection, SplittableRandom random, LocalDateTime now,
+                                int userBase, int itemBase) throws SQLException {
+        ZipfSampler commentedItems = new ZipfSampler(items, skew);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO comments (text, item_id, author_id, created) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= comments; i++) {
+                statement.setString(1, random.nextBoolean() ? "worked fine" : "returned on time, would book again");
+                statement.setInt(2, itemBase + 1 + commentedItems.next(random));
+                statement.setInt(3, userBase + 1 + random.nextInt(users));
+                statement.setObject(4, now.minusMinutes(random.nextInt(PAST_DAYS * 24 * 60)));
+                addBatch(connection, statement, i, comments);
+            }
+        }
+    }
+
+    private void addBatch(Connection connection, PreparedStatement statement, int row, int rows)
+            throws SQLException {
+        statement.addBatch();
+        if (row % batchSize == 0 || row == rows) {
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private static void logProgress(String table, int rows, long started) {
+        log.info("Inserted {} {} at {} ms", rows, table, System.currentTimeMillis() - started);
+    }
+
+    private static BookingStatus status(SplittableRandom random, boolean ended) {
+        int roll = random.nextInt(100);
+        if (ended) {
+            return roll < 85 ? BookingStatus.APPROVED : roll < 95 ? BookingStatus.REJECTED : BookingStatus.CANCELED;
+        }
+        return roll < 40 ? BookingStatus.WAITING : roll < 90 ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+    }
+
+    private static int maxId(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     String.format("SELECT COALESCE(MAX(%s), 0) FROM %s", column, table))) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Moves the identity of a table past the explicitly inserted ids, so the application keeps generating them.
+     */
+    private static void restartIdentity(Connection connection, String table, String column, int maxId)
+            throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        String sql;
+        if ("PostgreSQL".equals(product)) {
+            sql = String.format("SELECT setval(pg_get_serial_sequence('%s', '%s'), %d)", table, column, maxId);
+        } else {
+            sql = String.format("ALTER TABLE %s ALTER COLUMN %s RESTART WITH %d", table, column, maxId + 1);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Moves a sequence past the explicitly inserted ids, so the next id block starts after them.
+     */
+    private static void restartSequence(Connection connection, String sequence, int maxId) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        String sql;
+        if ("PostgreSQL".equals(product)) {
+            sql = String.format("SELECT setval('%s', %d, false)", sequence, maxId + 1);
+        } else {
+            sql = String.format("ALTER SEQUENCE %s RESTART WITH %d", sequence, maxId + 1);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew,
+     * by binary search over the cumulative weights.
+     */
+    static class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double skew) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int rank = 0; rank < n; rank++) {
+                total += 1 / Math.pow(rank + 1, skew);
+                cumulative[rank] = total;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double point = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, point);
+            return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+        }
+    }
+}
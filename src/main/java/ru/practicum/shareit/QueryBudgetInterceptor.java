@@ -0,0 +1,67 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the statements every request runs, from argument resolution to the written response, into the
+ * {@code shareit.http.statements} summary. A request going over {@code shareit.query-budget} statements is logged
+ * with the statements of each repository method and counted in {@code shareit.query.budget.exceeded}, so a query
+ * issued per element of a listing shows up without a profiler.
+ */
+@Slf4j
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+    private static final String SCOPE_ATTRIBUTE = QueryBudgetInterceptor.class.getName() + ".scope";
+
+    private final MeterRegistry meterRegistry;
+    private final int budget;
+
+    public QueryBudgetInterceptor(MeterRegistry meterRegistry, @Value("${shareit.query-budget:10}") int budget) {
+        this.meterRegistry = meterRegistry;
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(SCOPE_ATTRIBUTE, QueryCounter.open());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        QueryCounter.Scope scope = (QueryCounter.Scope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope == null) {
+            return;
+        }
+        scope.close();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("shareit.http.statements")
+                .description("SQL statements run by a request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(scope.count());
+        if (scope.count() > budget) {
+            Counter.builder("shareit.query.budget.exceeded")
+                    .description("Requests that ran more SQL statements than the budget")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("{} {} ran {} statements, budget is {}: {}", request.getMethod(), uri, scope.count(), budget,
+                    scope.statementsByMethod());
+        }
+    }
+}
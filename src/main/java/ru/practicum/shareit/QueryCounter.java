@@ -0,0 +1,122 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a {@link Scope} is open,
+ * per repository method that issued them. {@link RepositoryMetrics} names the running repository method;
+ * statements issued outside of one, such as a lazy association loaded by a mapper, go under {@link #OUTSIDE}.
+ * Threads without an open scope are not counted, unless they run a task wrapped by {@link #inCurrentScope}.
+ */
+@Component
+public class QueryCounter implements StatementInspector, HibernatePropertiesCustomizer {
+    public static final String OUTSIDE = "outside repositories";
+
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+    private static final ThreadLocal<String> REPOSITORY_METHOD = new ThreadLocal<>();
+
+    /**
+     * Starts counting on the current thread. Scopes nest: the outer one resumes when the inner one is closed.
+     */
+    public static Scope open() {
+        Scope scope = new Scope(SCOPE.get());
+        SCOPE.set(scope);
+        return scope;
+    }
+
+    /**
+     * Wraps a task handed to another thread so that its statements count in the scope open here, if any.
+     */
+    public static Runnable inCurrentScope(Runnable task) {
+        Scope scope = SCOPE.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = SCOPE.get();
+            SCOPE.set(scope);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    SCOPE.remove();
+                } else {
+                    SCOPE.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Names the repository method running on the current thread and returns the name it replaces.
+     */
+    static String enterRepositoryMethod(String method) {
+        String previous = REPOSITORY_METHOD.get();
+        REPOSITORY_METHOD.set(method);
+        return previous;
+    }
+
+    static void exitRepositoryMethod(String previous) {
+        if (previous == null) {
+            REPOSITORY_METHOD.remove();
+        } else {
+            REPOSITORY_METHOD.set(previous);
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = SCOPE.get();
+        if (scope != null) {
+            String method = REPOSITORY_METHOD.get();
+            scope.add(method == null ? OUTSIDE : method, 1);
+        }
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.session_factory.statement_inspector", this);
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope outer;
+        private final Map<String, Integer> statements = new LinkedHashMap<>();
+        private int count;
+
+        private Scope(Scope outer) {
+            this.outer = outer;
+        }
+
+        public synchronized int count() {
+            return count;
+        }
+
+        /**
+         * Statements per repository method, in the order the methods first ran.
+         */
+        public synchronized Map<String, Integer> statementsByMethod() {
+            return new LinkedHashMap<>(statements);
+        }
+
+        @Override
+        public void close() {
+            if (outer == null) {
+                SCOPE.remove();
+            } else {
+                statementsByMethod().forEach(outer::add);
+                SCOPE.set(outer);
+            }
+        }
+
+        private synchronized void add(String method, int statementCount) {
+            statements.merge(method, statementCount, Integer::sum);
+            count += statementCount;
+        }
+    }
+}
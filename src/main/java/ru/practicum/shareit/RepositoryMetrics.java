@@ -0,0 +1,99 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+
+/**
+ * Records how many rows every repository method returns as the {@code shareit.repository.rows} summary,
+ * tagged like the {@code spring.data.repository.invocations} timer Spring Boot records for the same call.
+ * Counts, flags and streams are not rows and are skipped; a single entity counts as one row, a missing one as none.
+ * The same advice names the running method for {@link QueryCounter}.
+ */
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetrics implements BeanPostProcessor {
+    public static final String ROWS = "shareit.repository.rows";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport) {
+            ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                    factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                            proxyFactory.addAdvice(new RowCounter(
+                                    meterRegistry.getObject(),
+                                    repositoryInformation.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    static int countRows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return 1;
+    }
+
+    private static boolean returnsRows(Method method) {
+        Class<?> type = method.getReturnType();
+        return !type.isPrimitive() && !Number.class.isAssignableFrom(type) && type != Boolean.class
+                && !BaseStream.class.isAssignableFrom(type);
+    }
+
+    private static class RowCounter implements MethodInterceptor {
+        private final MeterRegistry meterRegistry;
+        private final String repository;
+        private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+        RowCounter(MeterRegistry meterRegistry, String repository) {
+            this.meterRegistry = meterRegistry;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            String outerMethod = QueryCounter.enterRepositoryMethod(repository + "." + method.getName());
+            Object result;
+            try {
+                result = invocation.proceed();
+            } finally {
+                QueryCounter.exitRepositoryMethod(outerMethod);
+            }
+            if (returnsRows(method)) {
+                summaries.computeIfAbsent(method, key -> DistributionSummary.builder(ROWS)
+                                .description("Rows returned by a repository method")
+                                .tag("repository", repository)
+                                .tag("method", key.getName())
+                                .register(meterRegistry))
+                        .record(countRows(result));
+            }
+            return result;
+        }
+    }
+}
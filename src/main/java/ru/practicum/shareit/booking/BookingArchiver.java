@@ -0,0 +1,72 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Moves bookings that ended more than {@code shareit.booking-archive.retention} ago from the bookings table to the
+ * archive, so the table CURRENT, FUTURE and WAITING listings read holds recent bookings only, however long the
+ * history grows. Listings in the other states and single booking lookups read the archive as well.
+ * Runs every {@code shareit.booking-archive.interval} in chunks like {@link BookingExpiry}, each a short transaction
+ * of its own. Archived bookings are counted in {@code shareit.booking.archive.rows} and chunks timed in
+ * {@code shareit.booking.archive.batch}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.booking-archive.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingArchiver {
+    private final BookingRepository bookingRepository;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Counter rows;
+    private final Timer batches;
+
+    public BookingArchiver(BookingRepository bookingRepository, MeterRegistry meterRegistry,
+                           @Value("${shareit.booking-archive.retention:P90D}") Duration retention,
+                           @Value("${shareit.booking-archive.batch-size:1000}") int batchSize,
+                           @Value("${shareit.booking-archive.max-batches:100}") int maxBatches) {
+        this.bookingRepository = bookingRepository;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.rows = Counter.builder("shareit.booking.archive.rows")
+                .description("Bookings moved to the archive")
+                .register(meterRegistry);
+        this.batches = Timer.builder("shareit.booking.archive.batch")
+                .description("Time to archive one chunk of bookings")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Archives bookings that ended before the retention, chunk after chunk until a chunk comes out short.
+     * Returns the number of archived bookings.
+     */
+    @Scheduled(initialDelayString = "${shareit.booking-archive.interval:PT1H}",
+            fixedDelayString = "${shareit.booking-archive.interval:PT1H}")
+    public int archiveEnded() {
+        LocalDateTime endedBefore = LocalDateTime.now().minus(retention);
+        int archived = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int moved = batches.record(() -> bookingRepository.archiveEndedBefore(endedBefore, batchSize));
+            rows.increment(moved);
+            archived += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} bookings that ended before {}", archived, endedBefore);
+        }
+        return archived;
+    }
+}
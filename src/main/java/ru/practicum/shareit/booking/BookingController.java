@@ -1,12 +1,27 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.BookingBatchResult;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.user.SharerUser;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.RowStreaming;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import static ru.practicum.shareit.utils.Pagination.getPageOrThrow;
+import static ru.practicum.shareit.utils.Pagination.getSizeOrThrow;
+import static ru.practicum.shareit.utils.Pagination.withNextCursor;
 
 /**
  * TODO Sprint add-bookings.
@@ -16,37 +31,76 @@ import static ru.practicum.shareit.utils.Pagination.getPageOrThrow;
 @RequiredArgsConstructor
 public class BookingController {
     private final BookingService bookingService;
-    private final String userIdHeader = "X-Sharer-User-Id";
+    private final ObjectMapper objectMapper;
 
     @PostMapping
-    public Booking postBooking(@RequestHeader(userIdHeader) int userId, @RequestBody BookingDto bookingDto) {
-        return bookingService.createBooking(userId, bookingDto);
+    public BookingResponse postBooking(@SharerUser User user, @RequestBody BookingDto bookingDto) {
+        return bookingService.createBooking(user.getId(), bookingDto);
     }
 
     @PatchMapping("/{id}")
-    public Booking patchBooking(@RequestHeader(userIdHeader) int userId,
-                                @PathVariable int id, @RequestParam boolean approved) {
-        return bookingService.change(userId, id, approved);
+    public BookingResponse patchBooking(@SharerUser User user,
+                                        @PathVariable int id, @RequestParam boolean approved) {
+        return bookingService.change(user.getId(), id, approved);
+    }
+
+    /**
+     * Approves or rejects up to {@link BookingService#MAX_BATCH} bookings at once, answering every id.
+     */
+    @PatchMapping("/batch")
+    public List<BookingBatchResult> patchBookings(@SharerUser User user, @RequestParam boolean approved,
+                                                  @RequestBody List<Integer> ids) {
+        return bookingService.changeAll(user.getId(), ids, approved);
     }
 
     @GetMapping("/{id}")
-    public Booking getBookingById(@RequestHeader(userIdHeader) int userId, @PathVariable int id) {
-        return bookingService.getBookingById(userId, id);
+    public BookingResponse getBookingById(@SharerUser User user, @PathVariable int id) {
+        return bookingService.getBookingById(user.getId(), id);
     }
 
     @GetMapping()
-    public List<Booking> getBookingsByBooker(@RequestHeader(userIdHeader) int userId,
-                                             @RequestParam(name = "state", defaultValue = "ALL") String state,
-                                             @RequestParam(name = "from", required = false) Integer from,
-                                             @RequestParam(name = "size", required = false) Integer size) {
-        return bookingService.getBookingsByBooker(userId, state, getPageOrThrow(from, size));
+    public ResponseEntity<List<BookingResponse>> getBookingsByBooker(@SharerUser User user,
+                                                                     @RequestParam(defaultValue = "ALL") String state,
+                                                                     @RequestParam(required = false) Integer from,
+                                                                     @RequestParam(required = false) Integer size,
+                                                                     @RequestParam(required = false) String after,
+                                                                     HttpServletRequest request,
+                                                                     HttpServletResponse response) {
+        if (after != null) {
+            int pageSize = getSizeOrThrow(size);
+            List<BookingResponse> bookings = bookingService.getBookingsByBookerAfter(user.getId(), state,
+                    Cursor.decode(after), pageSize);
+            return withNextCursor(bookings, pageSize, booking -> Cursor.of(booking.getStart(), booking.getId()));
+        }
+        Pageable page = getPageOrThrow(from, size);
+        if (page.isUnpaged()) {
+            return RowStreaming.writeAll(request, response, objectMapper,
+                    (Consumer<BookingResponse> rows) ->
+                            bookingService.streamBookingsByBooker(user.getId(), state, rows));
+        }
+        return ResponseEntity.ok(bookingService.getBookingsByBooker(user.getId(), state, page));
     }
 
     @GetMapping("/owner")
-    public List<Booking> getBookingsByOwner(@RequestHeader(userIdHeader) int userId,
-                                            @RequestParam(name = "state", defaultValue = "ALL") String state,
-                                            @RequestParam(name = "from", required = false) Integer from,
-                                            @RequestParam(name = "size", required = false) Integer size) {
-        return bookingService.getBookingsByOwner(userId, state, getPageOrThrow(from, size));
+    public ResponseEntity<List<BookingResponse>> getBookingsByOwner(@SharerUser User user,
+                                                                    @RequestParam(defaultValue = "ALL") String state,
+                                                                    @RequestParam(required = false) Integer from,
+                                                                    @RequestParam(required = false) Integer size,
+                                                                    @RequestParam(required = false) String after,
+                                                                    HttpServletRequest request,
+                                                                    HttpServletResponse response) {
+        if (after != null) {
+            int pageSize = getSizeOrThrow(size);
+            List<BookingResponse> bookings = bookingService.getBookingsByOwnerAfter(user.getId(), state,
+                    Cursor.decode(after), pageSize);
+            return withNextCursor(bookings, pageSize, booking -> Cursor.of(booking.getStart(), booking.getId()));
+        }
+        Pageable page = getPageOrThrow(from, size);
+        if (page.isUnpaged()) {
+            return RowStreaming.writeAll(request, response, objectMapper,
+                    (Consumer<BookingResponse> rows) ->
+                            bookingService.streamBookingsByOwner(user.getId(), state, rows));
+        }
+        return ResponseEntity.ok(bookingService.getBookingsByOwner(user.getId(), state, page));
     }
 }
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Cancels WAITING bookings the owner never answered before they started. Runs every
+ * {@code shareit.booking-expiry.interval} in chunks of {@code shareit.booking-expiry.batch-size} bookings, each chunk
+ * a short transaction of its own, so approvals never wait behind a whole run. A run stops after
+ * {@code shareit.booking-expiry.max-batches} chunks and leaves the rest to the next one. Canceled bookings are counted
+ * in {@code shareit.booking.expiry.rows} and chunks timed in {@code shareit.booking.expiry.batch}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.booking-expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingExpiry {
+    private final BookingRepository bookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Counter rows;
+    private final Timer batches;
+
+    public BookingExpiry(BookingRepository bookingRepository, BookingIntervalIndex bookingIntervalIndex,
+                         MeterRegistry meterRegistry,
+                         @Value("${shareit.booking-expiry.batch-size:500}") int batchSize,
+                         @Value("${shareit.booking-expiry.max-batches:100}") int maxBatches) {
+        this.bookingRepository = bookingRepository;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.rows = Counter.builder("shareit.booking.expiry.rows")
+                .description("WAITING bookings canceled because they started unanswered")
+                .register(meterRegistry);
+        this.batches = Timer.builder("shareit.booking.expiry.batch")
+                .description("Time to cancel one chunk of expired bookings")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cancels WAITING bookings that started before now, chunk after chunk until a chunk comes out short.
+     * Returns the number of canceled bookings.
+     */
+    @Scheduled(initialDelayString = "${shareit.booking-expiry.interval:PT1M}",
+            fixedDelayString = "${shareit.booking-expiry.interval:PT1M}")
+    public int expireWaiting() {
+        LocalDateTime now = LocalDateTime.now();
+        int canceled = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Integer> itemIds = batches.record(() -> bookingRepository.cancelWaitingStartedBefore(now, batchSize));
+            rows.increment(itemIds.size());
+            new HashSet<>(itemIds).forEach(bookingIntervalIndex::evict);
+            canceled += itemIds.size();
+            if (itemIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (canceled > 0) {
+            log.info("Canceled {} WAITING bookings that started before {}", canceled, now);
+        }
+        return canceled;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.exception.ConflictException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static ru.practicum.shareit.utils.AfterTransaction.afterRollback;
+
+/**
+ * Per-item interval trees of WAITING and APPROVED bookings that have not ended yet.
+ * A tree is loaded from the database on the first booking of its item and then kept in sync
+ * by {@link BookingService}, so overlap checks never hit the database.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+    private static final List<BookingStatus> ACTIVE_STATUSES = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    private final BookingRepository bookingRepository;
+
+    private final Map<Integer, ItemIntervals> items = new ConcurrentHashMap<>();
+
+    /**
+     * Saves the booking unless it overlaps an active booking of the same item.
+     * Checks and saves for one item are serialized; different items do not wait for each other.
+     */
+    public Booking reserve(Booking booking, Supplier<Booking> save) {
+        int itemId = booking.getItem().getId();
+        ItemIntervals intervals = items.computeIfAbsent(itemId, id -> new ItemIntervals());
+        synchronized (intervals) {
+            BookingIntervalTree tree = intervals.load(itemId);
+            tree.pruneEndedBefore(LocalDateTime.now());
+            if (tree.overlaps(booking.getStart(), booking.getEnd())) {
+                throw new ConflictException(String.format("item id N%s is already booked for these dates", itemId));
+            }
+            Booking saved = save.get();
+            tree.insert(saved.getId(), saved.getStart(), saved.getEnd());
+            afterRollback(() -> remove(saved));
+            return saved;
+        }
+    }
+
+    public void onStatusChanged(Booking booking) {
+        if (ACTIVE_STATUSES.contains(booking.getStatus())) {
+            return;
+        }
+        remove(booking);
+    }
+
+    public void evict(int itemId) {
+        items.remove(itemId);
+    }
+
+    /**
+     * Drops every tree, for deletions cascading to items that are not known one by one.
+     */
+    public void evictAll() {
+        items.clear();
+    }
+
+    /**
+     * Prunes ended intervals every {@code shareit.booking-index.prune-interval} and drops the trees left empty,
+     * so an item booked once does not keep its tree for good. A dropped tree is loaded again on the next booking.
+     */
+    @Scheduled(initialDelayString = "${shareit.booking-index.prune-interval:PT10M}",
+            fixedDelayString = "${shareit.booking-index.prune-interval:PT10M}")
+    public void pruneEnded() {
+        LocalDateTime now = LocalDateTime.now();
+        items.forEach((itemId, intervals) -> {
+            synchronized (intervals) {
+                if (intervals.tree != null) {
+                    intervals.tree.pruneEndedBefore(now);
+                }
+                if (intervals.tree == null || intervals.tree.size() == 0) {
+                    items.remove(itemId, intervals);
+                }
+            }
+        });
+    }
+
+    int trackedItems() {
+        return items.size();
+    }
+
+    private void remove(Booking booking) {
+        ItemIntervals intervals = items.get(booking.getItem().getId());
+        if (intervals == null) {
+            return;
+        }
+        synchronized (intervals) {
+            if (intervals.tree != null) {
+                intervals.tree.remove(booking.getId(), booking.getStart());
+            }
+        }
+    }
+
+    private final class ItemIntervals {
+        private BookingIntervalTree tree;
+
+        private BookingIntervalTree load(int itemId) {
+            if (tree == null) {
+                BookingIntervalTree loaded = new BookingIntervalTree();
+                bookingRepository.findAllByItemIdAndStatusInAndEndAfter(itemId, ACTIVE_STATUSES, LocalDateTime.now())
+                        .forEach(booking -> loaded.insert(booking.getId(), booking.getStart(), booking.getEnd()));
+                tree = loaded;
+            }
+            return tree;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package ru.practicum.shareit.booking;
 
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponse;
 import ru.practicum.shareit.booking.dto.PartBookingDto;
+import ru.practicum.shareit.booking.dto.PartBookingView;
 
 public class BookingMapper {
     public static Booking toBooking(BookingDto bookingDto) {
         return new Booking(null, bookingDto.getStart(),
-                bookingDto.getEnd(), null, null, null);
+                bookingDto.getEnd(), null, null, null, null);
     }
 
     public static BookingDto toBookingDto(Booking booking) {
@@ -16,7 +18,21 @@ public class BookingMapper {
                 booking.getEnd());
     }
 
+    public static BookingResponse toBookingResponse(Booking booking) {
+        return new BookingResponse(booking.getId(),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getStatus(),
+                booking.getBooker().getId(),
+                booking.getItem().getId(),
+                booking.getItem().getName());
+    }
+
     public static PartBookingDto toPartBookingDto(Booking booking) {
         return new PartBookingDto(booking.getId(), booking.getBooker().getId());
     }
+
+    public static PartBookingDto toPartBookingDto(PartBookingView booking) {
+        return new PartBookingDto(booking.getId(), booking.getBookerId());
+    }
 }
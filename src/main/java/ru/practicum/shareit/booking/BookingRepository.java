@@ -1,33 +1,78 @@
 package ru.practicum.shareit.booking;
 
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.booking.dto.PartBookingView;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface BookingRepository extends JpaRepository<Booking, Integer> {
-    List<Booking> findAllByBookerIdOrderByStartDesc(int userId, Pageable page);
+public interface BookingRepository extends JpaRepository<Booking, Integer>, BookingRepositoryCustom {
+    @Override
+    @EntityGraph(Booking.DETAIL_GRAPH)
+    Optional<Booking> findById(Integer id);
 
-    List<Booking> findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(int userId, LocalDateTime now, LocalDateTime now1, Pageable page);
+    @EntityGraph(Booking.DETAIL_GRAPH)
+    List<Booking> findAllByIdIn(Collection<Integer> ids);
 
-    List<Booking> findAllByBookerIdAndEndBeforeOrderByStartDesc(int userId, LocalDateTime now, Pageable page);
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingResponse(" +
+            "b.id, b.start, b.end, b.status, b.booker.id, b.item.id, b.item.name) " +
+            "FROM Booking b " +
+            "WHERE b.id = ?1 AND (b.booker.id = ?2 OR b.item.owner.id = ?2)")
+    Optional<BookingResponse> findResponseByIdAndParticipant(int id, int userId);
 
-    List<Booking> findAllByBookerIdAndStartAfterOrderByStartDesc(int userId, LocalDateTime now, Pageable page);
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingResponse(" +
+            "b.id, b.start, b.end, b.status, b.booker.id, b.item.id, b.item.name) " +
+            "FROM ArchivedBooking b " +
+            "WHERE b.id = ?1 AND (b.booker.id = ?2 OR b.item.owner.id = ?2)")
+    Optional<BookingResponse> findArchivedResponseByIdAndParticipant(int id, int userId);
 
-    List<Booking> findAllByBookerIdAndStatusOrderByStartDesc(int userId, BookingStatus waiting, Pageable page);
+    @Query("SELECT COUNT(b) > 0 FROM ArchivedBooking b WHERE b.id = ?1")
+    boolean existsArchivedById(int id);
 
-    List<Booking> findAllByItemOwnerIdOrderByStartDesc(int userId, Pageable page);
+    List<Booking> findAllByItemIdOrderByStart(int id);
 
-    List<Booking> findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(int userId, LocalDateTime now, LocalDateTime now1, Pageable page);
+    List<Booking> findAllByItemIdAndBookerIdAndEndBeforeOrderByStartDesc(int id, int userId, LocalDateTime now);
 
-    List<Booking> findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(int userId, LocalDateTime now, Pageable page);
+    @Query("SELECT COUNT(b) > 0 FROM ArchivedBooking b WHERE b.item.id = ?1 AND b.booker.id = ?2 AND b.end < ?3")
+    boolean existsArchivedByItemIdAndBookerIdAndEndBefore(int id, int userId, LocalDateTime now);
 
-    List<Booking> findAllByItemOwnerIdAndStartAfterOrderByStartDesc(int userId, LocalDateTime now, Pageable page);
+    List<Booking> findAllByItemIdAndStatusInAndEndAfter(int id, Collection<BookingStatus> statuses, LocalDateTime now);
 
-    List<Booking> findAllByItemOwnerIdAndStatusOrderByStartDesc(int userId, BookingStatus waiting, Pageable page);
+    /**
+     * The last booking of the item among archived ones, for an item with no ended booking left in the bookings.
+     */
+    @Query(value = "SELECT item_id AS itemId, booking_id AS id, booker_id AS bookerId " +
+            "FROM bookings_archive " +
+            "WHERE item_id = ?1 " +
+            "ORDER BY start_time DESC, booking_id DESC " +
+            "LIMIT 1", nativeQuery = true)
+    Optional<PartBookingView> findLastArchivedBooking(int itemId);
 
-    List<Booking> findAllByItemIdOrderByStart(int id);
+    /**
+     * Reads the archive as well, every archived booking having ended: an item whose bookings
+     * have all been archived keeps its last booking.
+     */
+    @Query(value = "SELECT b.item_id AS itemId, b.booking_id AS id, b.booker_id AS bookerId " +
+            "FROM (SELECT item_id, booking_id, booker_id, " +
+            "ROW_NUMBER() OVER (PARTITION BY item_id ORDER BY start_time DESC, booking_id DESC) AS rn " +
+            "FROM (SELECT item_id, booking_id, booker_id, start_time FROM bookings " +
+            "WHERE item_id IN (?1) AND end_time < ?2 " +
+            "UNION ALL " +
+            "SELECT item_id, booking_id, booker_id, start_time FROM bookings_archive " +
+            "WHERE item_id IN (?1)) u) b " +
+            "WHERE b.rn = 1", nativeQuery = true)
+    List<PartBookingView> findLastBookings(Collection<Integer> itemIds, LocalDateTime now);
 
-    List<Booking> findAllByItemIdAndBookerIdAndEndBeforeOrderByStartDesc(int id, int userId, LocalDateTime now);
+    @Query(value = "SELECT b.item_id AS itemId, b.booking_id AS id, b.booker_id AS bookerId " +
+            "FROM (SELECT item_id, booking_id, booker_id, " +
+            "ROW_NUMBER() OVER (PARTITION BY item_id ORDER BY start_time, booking_id) AS rn " +
+            "FROM bookings " +
+            "WHERE item_id IN (?1) AND end_time > ?2) b " +
+            "WHERE b.rn = 1", nativeQuery = true)
+    List<PartBookingView> findNextBookings(Collection<Integer> itemIds, LocalDateTime now);
 }
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.utils.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookingRepositoryCustom {
+    /**
+     * Offset page ordered by start and id descending, projected to responses in one statement.
+     * With {@code withArchive} archived bookings are read too, in a second statement, and merged in.
+     */
+    List<BookingResponse> findPage(Specification<Booking> spec, Pageable page, boolean withArchive);
+
+    /**
+     * Keyset page ordered by start and id descending, beginning right after {@code after}
+     * (from the top when {@code after} is {@code null}), loaded like {@link #findPage}.
+     */
+    List<BookingResponse> findAllAfter(Specification<Booking> spec, Cursor after, int size, boolean withArchive);
+
+    /**
+     * Every row in the order of {@link #findPage}, read from the database in batches of {@code fetchSize}
+     * while the stream is consumed. With {@code withArchive} the archive is read by a second cursor alongside.
+     * Needs a transaction open until the stream is closed.
+     */
+    Stream<BookingResponse> streamAll(Specification<Booking> spec, int fetchSize, boolean withArchive);
+
+    /**
+     * Moves every booking of {@code ids} to {@code status} in one statement, in a transaction of its own.
+     * Only bookings not approved or rejected yet are changed, and approvals only for available items. Unless all
+     * of {@code ids} qualify nothing is changed and an {@link OptimisticLockingFailureException} is thrown.
+     * Flushes before and clears the persistence context after, so no loaded booking keeps its old status.
+     */
+    void changeStatus(Collection<Integer> ids, BookingStatus status);
+
+    /**
+     * Cancels up to {@code limit} WAITING bookings that started before {@code time}, oldest first, in a transaction
+     * of its own. The select locks the rows it picks, so nothing approves them before the update cancels them.
+     * Returns the item id of every canceled booking.
+     */
+    List<Integer> cancelWaitingStartedBefore(LocalDateTime time, int limit);
+
+    /**
+     * Moves up to {@code limit} bookings that ended before {@code time} and are no longer WAITING, earliest ended
+     * first, to the archive in a transaction of its own. Returns the number of moved bookings.
+     */
+    int archiveEndedBefore(LocalDateTime time, int limit);
+}
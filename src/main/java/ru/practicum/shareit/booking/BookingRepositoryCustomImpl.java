@@ -0,0 +1,203 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.SortedStreams;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+    private static final Comparator<BookingResponse> LISTING_ORDER = Comparator
+            .comparing(BookingResponse::getStart)
+            .thenComparing(BookingResponse::getId)
+            .reversed();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookingResponse> findPage(Specification<Booking> spec, Pageable page, boolean withArchive) {
+        if (!withArchive) {
+            return page(createListingQuery(Booking.class, spec), page.getOffset(), page);
+        }
+        List<BookingResponse> merged = merge(
+                page(createListingQuery(Booking.class, spec), 0, page),
+                page(createListingQuery(ArchivedBooking.class, spec), 0, page));
+        if (page.isUnpaged()) {
+            return merged;
+        }
+        int from = (int) Math.min(page.getOffset(), merged.size());
+        return merged.subList(from, Math.min(from + page.getPageSize(), merged.size()));
+    }
+
+    @Override
+    public List<BookingResponse> findAllAfter(Specification<Booking> spec, Cursor after, int size,
+                                              boolean withArchive) {
+        Specification<Booking> where = after == null ? spec : spec.and(startsBefore(after));
+        List<BookingResponse> bookings = createListingQuery(Booking.class, where)
+                .setMaxResults(size)
+                .getResultList();
+        if (!withArchive) {
+            return bookings;
+        }
+        List<BookingResponse> merged = merge(bookings, createListingQuery(ArchivedBooking.class, where)
+                .setMaxResults(size)
+                .getResultList());
+        return merged.subList(0, Math.min(size, merged.size()));
+    }
+
+    @Override
+    public Stream<BookingResponse> streamAll(Specification<Booking> spec, int fetchSize, boolean withArchive) {
+        Stream<BookingResponse> bookings = createListingQuery(Booking.class, spec)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+        if (!withArchive) {
+            return bookings;
+        }
+        return SortedStreams.merge(bookings, createListingQuery(ArchivedBooking.class, spec)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream(), LISTING_ORDER);
+    }
+
+    @Override
+    @Transactional
+    public void changeStatus(Collection<Integer> ids, BookingStatus status) {
+        String jpql = "UPDATE Booking b SET b.status = :status, b.version = b.version + 1 " +
+                "WHERE b.id IN :ids AND b.status NOT IN :settled";
+        if (status == BookingStatus.APPROVED) {
+            jpql += " AND b.item.id IN (SELECT i.id FROM Item i WHERE i.available = TRUE)";
+        }
+        entityManager.flush();
+        int changed = entityManager.createQuery(jpql)
+                .setParameter("status", status)
+                .setParameter("ids", ids)
+                .setParameter("settled", BookingStatus.SETTLED)
+                .executeUpdate();
+        entityManager.clear();
+        if (changed != ids.size()) {
+            throw new OptimisticLockingFailureException(String.format("%s of %s bookings changed concurrently",
+                    ids.size() - changed, ids.size()));
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<Integer> cancelWaitingStartedBefore(LocalDateTime time, int limit) {
+        List<Object[]> expired = entityManager.createQuery("SELECT b.id, b.item.id FROM Booking b " +
+                        "WHERE b.status = :waiting AND b.start < :time ORDER BY b.start", Object[].class)
+                .setParameter("waiting", BookingStatus.WAITING)
+                .setParameter("time", time)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = new ArrayList<>(expired.size());
+        List<Integer> itemIds = new ArrayList<>(expired.size());
+        for (Object[] row : expired) {
+            ids.add((Integer) row[0]);
+            itemIds.add((Integer) row[1]);
+        }
+        entityManager.createQuery("UPDATE Booking b SET b.status = :canceled, b.version = b.version + 1 " +
+                        "WHERE b.id IN :ids")
+                .setParameter("canceled", BookingStatus.CANCELED)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return itemIds;
+    }
+
+    @Override
+    @Transactional
+    public int archiveEndedBefore(LocalDateTime time, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT b.id FROM Booking b " +
+                        "WHERE b.end < :time AND b.status <> :waiting ORDER BY b.end", Integer.class)
+                .setParameter("time", time)
+                .setParameter("waiting", BookingStatus.WAITING)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // a native statement without query spaces would evict every second-level cache region
+        entityManager.createNativeQuery("INSERT INTO bookings_archive " +
+                        "(booking_id, start_time, end_time, item_id, booker_id, status, version) " +
+                        "SELECT booking_id, start_time, end_time, item_id, booker_id, status, version " +
+                        "FROM bookings WHERE booking_id IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(ArchivedBooking.class)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM Booking b WHERE b.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return ids.size();
+    }
+
+    /**
+     * Listing of {@code entity}, {@link Booking} or {@link ArchivedBooking}. Both name their attributes alike,
+     * so the booking specification is applied to the root of either.
+     */
+    @SuppressWarnings("unchecked")
+    private TypedQuery<BookingResponse> createListingQuery(Class<?> entity, Specification<Booking> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingResponse> query = cb.createQuery(BookingResponse.class);
+        Root<Booking> root = (Root<Booking>) query.from(entity);
+        Join<Booking, Item> item = root.join("item");
+
+        query.select(cb.construct(BookingResponse.class,
+                        root.get("id"), root.get("start"), root.get("end"), root.get("status"),
+                        root.get("booker").get("id"), item.get("id"), item.get("name")))
+                .where(spec.toPredicate(root, query, cb))
+                .orderBy(cb.desc(root.get("start")), cb.desc(root.get("id")));
+
+        return entityManager.createQuery(query);
+    }
+
+    /**
+     * Rows up to the end of {@code page}, skipping the first {@code offset}.
+     */
+    private static List<BookingResponse> page(TypedQuery<BookingResponse> query, long offset, Pageable page) {
+        if (page.isPaged()) {
+            query.setFirstResult((int) offset)
+                    .setMaxResults((int) (page.getOffset() - offset) + page.getPageSize());
+        }
+        return query.getResultList();
+    }
+
+    private static List<BookingResponse> merge(List<BookingResponse> bookings, List<BookingResponse> archived) {
+        try (Stream<BookingResponse> merged = SortedStreams.merge(bookings.stream(), archived.stream(),
+                LISTING_ORDER)) {
+            return merged.collect(Collectors.toList());
+        }
+    }
+
+    private static Specification<Booking> startsBefore(Cursor after) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("start"), after.getStart()),
+                cb.and(cb.equal(root.get("start"), after.getStart()),
+                        cb.lessThan(root.get("id"), after.getId())));
+    }
+}
@@ -3,128 +3,271 @@ package ru.practicum.shareit.booking;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingBatchResult;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponse;
 import ru.practicum.shareit.item.exception.BadRequestException;
 import ru.practicum.shareit.item.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.ItemLockManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ru.practicum.shareit.booking.BookingSpecifications.bookerIs;
+import static ru.practicum.shareit.booking.BookingSpecifications.inState;
+import static ru.practicum.shareit.booking.BookingSpecifications.itemOwnerIs;
+import static ru.practicum.shareit.utils.AfterTransaction.afterCommit;
+import static ru.practicum.shareit.utils.OptimisticRetry.retryOnConflict;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
+    private static final int STREAM_FETCH_SIZE = 500;
+    public static final int MAX_BATCH = 1000;
+
     private final BookingRepository bookingRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final ItemRepository itemRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemLockManager itemLockManager;
+    private final TransactionTemplate transactionTemplate;
 
-    public Booking createBooking(int userId, BookingDto bookingDto) {
-        User booker = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
-        Item item = itemRepository.findById(bookingDto.getItemId())
-                .orElseThrow(() -> new NotFoundException(String.format("item id N%s", bookingDto.getItemId())));
+    /**
+     * Not transactional: the booking has to be committed before the item lock is released, so the transaction
+     * runs under the lock. It is a read-write one, so the availability check reads the primary, not a replica.
+     */
+    public BookingResponse createBooking(int userId, BookingDto bookingDto) {
+        User booker = userCache.get(userId);
 
-        if (item.getOwner().getId() == userId) {
-            throw new NotFoundException(String.format("item id N%s", bookingDto.getItemId()));
-        }
+        return itemLockManager.withLock(bookingDto.getItemId(), () -> transactionTemplate.execute(status -> {
+            Item item = itemRepository.findById(bookingDto.getItemId())
+                    .orElseThrow(() -> new NotFoundException(String.format("item id N%s", bookingDto.getItemId())));
 
-        if (!item.getAvailable()) {
-            throw new BadRequestException(String.format("Item with item id N%s is unavailable", bookingDto.getItemId()));
-        }
+            if (item.getOwner().getId() == userId) {
+                throw new NotFoundException(String.format("item id N%s", bookingDto.getItemId()));
+            }
 
-        Booking booking = BookingMapper.toBooking(bookingDto);
+            if (!item.getAvailable()) {
+                throw new BadRequestException(String.format("Item with item id N%s is unavailable", bookingDto.getItemId()));
+            }
 
-        if (booking.getStart().isBefore(LocalDateTime.now())
-                || booking.getEnd().isBefore(booking.getStart())
-                || booking.getEnd().isBefore(LocalDateTime.now())) {
-            throw new BadRequestException(String.format("incorrect booking date item id N%s", bookingDto.getItemId()));
-        }
+            Booking booking = BookingMapper.toBooking(bookingDto);
 
-        booking.setBooker(booker);
-        booking.setItem(item);
-        booking.setStatus(BookingStatus.WAITING);
+            if (booking.getStart().isBefore(LocalDateTime.now())
+                    || booking.getEnd().isBefore(booking.getStart())
+                    || booking.getEnd().isBefore(LocalDateTime.now())) {
+                throw new BadRequestException(String.format("incorrect booking date item id N%s", bookingDto.getItemId()));
+            }
 
-        return bookingRepository.save(booking);
+            booking.setBooker(booker);
+            booking.setItem(item);
+            booking.setStatus(BookingStatus.WAITING);
+
+            return BookingMapper.toBookingResponse(
+                    bookingIntervalIndex.reserve(booking, () -> bookingRepository.save(booking)));
+        }));
     }
 
-    public Booking change(int userId, int id, boolean approved) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(String.format("booking id N%s", id)));
+    /**
+     * Not transactional: every optimistic retry runs in a read-write transaction of its own, all of them under the
+     * item lock, so each attempt reads the booking from the primary and a retry sees the version that won.
+     */
+    public BookingResponse change(int userId, int id, boolean approved) {
+        userCache.get(userId);
+        int itemId = transactionTemplate.execute(status -> bookingRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException(String.format("booking id N%s", id)))
+                .getItem().getId());
 
-        if (!user.equals(booking.getItem().getOwner())) {
-            throw new NotFoundException(String.format("user id N%s have not item", userId));
-        }
+        return itemLockManager.withLock(itemId, () -> retryOnConflict(() -> transactionTemplate.execute(status -> {
+            Booking booking = bookingRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException(String.format("booking id N%s", id)));
 
-        if (booking.getStatus() == BookingStatus.APPROVED || booking.getStatus() == BookingStatus.REJECTED) {
-            throw new BadRequestException(String.format("booking id N%s already has a changed status", id));
-        }
+            if (booking.getItem().getOwner().getId() != userId) {
+                throw new NotFoundException(String.format("user id N%s have not item", userId));
+            }
+
+            if (booking.getStatus().isSettled()) {
+                throw new BadRequestException(String.format("booking id N%s already has a changed status", id));
+            }
+
+            if (approved && !booking.getItem().getAvailable()) {
+                throw new BadRequestException(String.format("Item with item id N%s is unavailable", itemId));
+            }
 
+            BookingStatus newStatus = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+            booking.setStatus(newStatus);
+            Booking savedBooking = bookingRepository.save(booking);
+            afterCommit(() -> bookingIntervalIndex.onStatusChanged(savedBooking));
+
+            return BookingMapper.toBookingResponse(savedBooking);
+        })));
+    }
+
+    /**
+     * Approves or rejects the owner's bookings of {@code ids} and reports every distinct id, in the order given.
+     * Bookings are read with their items in one query and changed in one statement under the locks of their items;
+     * a booking that cannot change is reported without holding back the others.
+     * Not transactional for the same reason as {@link #change}; bookings are read in a read-write transaction,
+     * so a retry after losing to a concurrent change reads them from the primary.
+     */
+    public List<BookingBatchResult> changeAll(int userId, List<Integer> ids, boolean approved) {
+        userCache.get(userId);
+        if (ids.size() > MAX_BATCH) {
+            throw new BadRequestException(String.format("a batch holds at most %s bookings, got %s",
+                    MAX_BATCH, ids.size()));
+        }
+        List<Integer> distinctIds = ids.stream()
+                .distinct()
+                .collect(Collectors.toList());
         BookingStatus newStatus = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
-        booking.setStatus(newStatus);
 
-        return bookingRepository.save(booking);
+        return retryOnConflict(() -> {
+            Map<Integer, Booking> bookings = distinctIds.isEmpty() ? Map.of() : transactionTemplate
+                    .execute(status -> bookingRepository.findAllByIdIn(distinctIds))
+                    .stream()
+                    .collect(Collectors.toMap(Booking::getId, Function.identity()));
+            Map<Integer, String> errors = new HashMap<>();
+            List<Booking> changing = new ArrayList<>();
+            for (Integer id : distinctIds) {
+                Booking booking = bookings.get(id);
+                if (booking == null || booking.getItem().getOwner().getId() != userId) {
+                    errors.put(id, String.format("not found entity booking id N%s", id));
+                } else if (booking.getStatus().isSettled()) {
+                    errors.put(id, String.format("booking id N%s already has a changed status", id));
+                } else if (approved && !booking.getItem().getAvailable()) {
+                    errors.put(id, String.format("Item with item id N%s is unavailable", booking.getItem().getId()));
+                } else {
+                    changing.add(booking);
+                }
+            }
+            if (!changing.isEmpty()) {
+                Set<Integer> itemIds = changing.stream()
+                        .map(booking -> booking.getItem().getId())
+                        .collect(Collectors.toSet());
+                itemLockManager.withLocks(itemIds, () -> {
+                    bookingRepository.changeStatus(changing.stream()
+                            .map(Booking::getId)
+                            .collect(Collectors.toList()), newStatus);
+                    // still under the item locks, so a reservation never sees the committed status with stale intervals
+                    for (Booking booking : changing) {
+                        booking.setStatus(newStatus);
+                        bookingIntervalIndex.onStatusChanged(booking);
+                    }
+                    return null;
+                });
+            }
+
+            return distinctIds.stream()
+                    .map(id -> errors.containsKey(id)
+                            ? BookingBatchResult.rejected(id, errors.get(id))
+                            : BookingBatchResult.changed(BookingMapper.toBookingResponse(bookings.get(id))))
+                    .collect(Collectors.toList());
+        });
     }
 
-    public Booking getBookingById(int userId, int id) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
+    @Transactional(readOnly = true)
+    public BookingResponse getBookingById(int userId, int id) {
+        userCache.get(userId);
 
-        Booking booking = bookingRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(String.format("booking id N%s", id)));
+        return bookingRepository.findResponseByIdAndParticipant(id, userId)
+                .or(() -> bookingRepository.findArchivedResponseByIdAndParticipant(id, userId))
+                .orElseThrow(() -> bookingRepository.existsById(id) || bookingRepository.existsArchivedById(id)
+                        ? new NotFoundException(String.format("there is no booking for user id N%s", userId))
+                        : new NotFoundException(String.format("booking id N%s", id)));
+    }
 
-        if (!(booking.getBooker().equals(user) || booking.getItem().getOwner().equals(user))) {
-            throw new NotFoundException(String.format("there is no booking for user id N%s", userId));
-        }
+    @Transactional(readOnly = true)
+    public List<BookingResponse> getBookingsByBooker(int userId, String state, Pageable page) {
+        userCache.get(userId);
 
-        return booking;
+        BookingState bookingState = BookingState.from(state);
+
+        return bookingRepository.findPage(bookerIs(userId).and(inState(bookingState, LocalDateTime.now())), page,
+                bookingState.reachesArchive());
     }
 
-    public List<Booking> getBookingsByBooker(int userId, String state, Pageable page) {
-        userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
-
-        switch (state) {
-            case "ALL":
-                return bookingRepository.findAllByBookerIdOrderByStartDesc(userId, page);
-            case "CURRENT":
-                return bookingRepository.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId, LocalDateTime.now(), LocalDateTime.now(), page);
-            case "PAST":
-                return bookingRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(userId, LocalDateTime.now(), page);
-            case "FUTURE":
-                return bookingRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(userId, LocalDateTime.now(), page);
-            case "WAITING":
-                return bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.WAITING, page);
-            case "REJECTED":
-                return bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.REJECTED, page);
-            default:
-                throw new BadRequestException("Unknown state: UNSUPPORTED_STATUS");
+    @Transactional(readOnly = true)
+    public List<BookingResponse> getBookingsByOwner(int userId, String state, Pageable page) {
+        userCache.get(userId);
+
+        BookingState bookingState = BookingState.from(state);
+
+        return bookingRepository.findPage(itemOwnerIs(userId).and(inState(bookingState, LocalDateTime.now())), page,
+                bookingState.reachesArchive());
+    }
+
+    /**
+     * Hands every booking of the booker in the state to {@code sink} while it is read, newest first.
+     */
+    @Transactional(readOnly = true)
+    public void streamBookingsByBooker(int userId, String state, Consumer<BookingResponse> sink) {
+        userCache.get(userId);
+
+        BookingState bookingState = BookingState.from(state);
+
+        try (Stream<BookingResponse> bookings = bookingRepository.streamAll(
+                bookerIs(userId).and(inState(bookingState, LocalDateTime.now())), STREAM_FETCH_SIZE,
+                bookingState.reachesArchive())) {
+            bookings.forEach(sink);
+        }
+    }
+
+    /**
+     * Hands every booking of the owner's items in the state to {@code sink} while it is read, newest first.
+     */
+    @Transactional(readOnly = true)
+    public void streamBookingsByOwner(int userId, String state, Consumer<BookingResponse> sink) {
+        userCache.get(userId);
+
+        BookingState bookingState = BookingState.from(state);
+
+        try (Stream<BookingResponse> bookings = bookingRepository.streamAll(
+                itemOwnerIs(userId).and(inState(bookingState, LocalDateTime.now())), STREAM_FETCH_SIZE,
+                bookingState.reachesArchive())) {
+            bookings.forEach(sink);
         }
     }
 
-    public List<Booking> getBookingsByOwner(int userId, String state, Pageable page) {
-        userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
-
-        switch (state) {
-            case "ALL":
-                return bookingRepository.findAllByItemOwnerIdOrderByStartDesc(userId, page);
-            case "CURRENT":
-                return bookingRepository.findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId, LocalDateTime.now(), LocalDateTime.now(), page);
-            case "PAST":
-                return bookingRepository.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(userId, LocalDateTime.now(), page);
-            case "FUTURE":
-                return bookingRepository.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(userId, LocalDateTime.now(), page);
-            case "WAITING":
-                return bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, BookingStatus.WAITING, page);
-            case "REJECTED":
-                return bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, BookingStatus.REJECTED, page);
-            default:
-                throw new BadRequestException("Unknown state: UNSUPPORTED_STATUS");
+    @Transactional(readOnly = true)
+    public List<BookingResponse> getBookingsByBookerAfter(int userId, String state, Cursor after, int size) {
+        userCache.get(userId);
+        throwIfNotBookingCursor(after);
+
+        BookingState bookingState = BookingState.from(state);
+
+        return bookingRepository.findAllAfter(bookerIs(userId).and(inState(bookingState, LocalDateTime.now())), after,
+                size, bookingState.reachesArchive());
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookingResponse> getBookingsByOwnerAfter(int userId, String state, Cursor after, int size) {
+        userCache.get(userId);
+        throwIfNotBookingCursor(after);
+
+        BookingState bookingState = BookingState.from(state);
+
+        return bookingRepository.findAllAfter(itemOwnerIs(userId).and(inState(bookingState, LocalDateTime.now())), after,
+                size, bookingState.reachesArchive());
+    }
+
+    private void throwIfNotBookingCursor(Cursor after) {
+        if (after != null && after.getStart() == null) {
+            throw new BadRequestException("incorrect cursor");
         }
     }
 }
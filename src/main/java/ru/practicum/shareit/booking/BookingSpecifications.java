@@ -0,0 +1,50 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.LocalDateTime;
+
+public class BookingSpecifications {
+    public static Specification<Booking> bookerIs(int userId) {
+        return (root, query, cb) -> cb.equal(root.get("booker").get("id"), userId);
+    }
+
+    /**
+     * Matches through a subquery on the owner's items, so that the booking table is entered
+     * by its item index instead of being joined ahead of the fetched associations.
+     */
+    public static Specification<Booking> itemOwnerIs(int userId) {
+        return (root, query, cb) -> {
+            Subquery<Integer> ownedItems = query.subquery(Integer.class);
+            Root<Item> item = ownedItems.from(Item.class);
+            ownedItems.select(item.get("id"))
+                    .where(cb.equal(item.get("owner").get("id"), userId));
+
+            return root.get("item").get("id").in(ownedItems);
+        };
+    }
+
+    public static Specification<Booking> inState(BookingState state, LocalDateTime now) {
+        switch (state) {
+            case ALL:
+                return (root, query, cb) -> cb.conjunction();
+            case CURRENT:
+                return (root, query, cb) -> cb.and(
+                        cb.lessThan(root.get("start"), now),
+                        cb.greaterThan(root.get("end"), now));
+            case PAST:
+                return (root, query, cb) -> cb.lessThan(root.get("end"), now);
+            case FUTURE:
+                return (root, query, cb) -> cb.greaterThan(root.get("start"), now);
+            case WAITING:
+                return (root, query, cb) -> cb.equal(root.get("status"), BookingStatus.WAITING);
+            case REJECTED:
+                return (root, query, cb) -> cb.equal(root.get("status"), BookingStatus.REJECTED);
+            default:
+                throw new IllegalArgumentException(String.valueOf(state));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking;
+
+import ru.practicum.shareit.item.exception.BadRequestException;
+
+public enum BookingState {
+    ALL,
+    CURRENT,
+    PAST,
+    FUTURE,
+    WAITING,
+    REJECTED;
+
+    /**
+     * Whether archived bookings can be in this state. Only ended bookings are archived, and never WAITING ones.
+     */
+    public boolean reachesArchive() {
+        return this == ALL || this == PAST || this == REJECTED;
+    }
+
+    public static BookingState from(String state) {
+        for (BookingState value : values()) {
+            if (value.name().equals(state)) {
+                return value;
+            }
+        }
+        throw new BadRequestException("Unknown state: UNSUPPORTED_STATUS");
+    }
+}
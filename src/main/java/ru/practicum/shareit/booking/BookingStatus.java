@@ -1,8 +1,19 @@
 package ru.practicum.shareit.booking;
 
+import java.util.List;
+
 public enum BookingStatus {
     WAITING,
     APPROVED,
     REJECTED,
-    CANCELED
+    CANCELED;
+
+    /**
+     * Statuses the owner has no say in any more: answered bookings, and WAITING ones canceled by {@link BookingExpiry}.
+     */
+    public static final List<BookingStatus> SETTLED = List.of(APPROVED, REJECTED, CANCELED);
+
+    public boolean isSettled() {
+        return SETTLED.contains(this);
+    }
 }
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.*;
+
+/**
+ * Outcome of one booking of a batch status change: the changed booking, or why it was left as it was.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class BookingBatchResult {
+    private final int id;
+    private final BookingResponse booking;
+    private final String error;
+
+    public static BookingBatchResult changed(BookingResponse booking) {
+        return new BookingBatchResult(booking.getId(), booking, null);
+    }
+
+    public static BookingBatchResult rejected(int id, String error) {
+        return new BookingBatchResult(id, null, error);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.practicum.shareit.booking.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the booking endpoints return: the booking with just the ids of its booker and item and the item name.
+ * Built straight from a constructor expression, so listings never hydrate booking entities.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+public class BookingResponse {
+    private Integer id;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private BookingStatus status;
+    private Booker booker;
+    private BookedItem item;
+
+    public BookingResponse(Integer id, LocalDateTime start, LocalDateTime end, BookingStatus status,
+                           Integer bookerId, Integer itemId, String itemName) {
+        this(id, start, end, status, new Booker(bookerId), new BookedItem(itemId, itemName));
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    public static class Booker {
+        private Integer id;
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    public static class BookedItem {
+        private Integer id;
+        private String name;
+    }
+}
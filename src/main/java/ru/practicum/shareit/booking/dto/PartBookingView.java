@@ -0,0 +1,9 @@
+package ru.practicum.shareit.booking.dto;
+
+public interface PartBookingView {
+    Integer getItemId();
+
+    Integer getId();
+
+    Integer getBookerId();
+}
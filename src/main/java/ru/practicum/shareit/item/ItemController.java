@@ -1,14 +1,27 @@
 package ru.practicum.shareit.item;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.comment.CommentDto;
+import ru.practicum.shareit.item.dto.ItemBatchResult;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.SharerUser;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.RowStreaming;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static ru.practicum.shareit.utils.Pagination.getPageOrThrow;
+import static ru.practicum.shareit.utils.Pagination.getSizeOrThrow;
+import static ru.practicum.shareit.utils.Pagination.withNextCursor;
 
 /**
  * TODO Sprint add-controllers.
@@ -18,47 +31,73 @@ import static ru.practicum.shareit.utils.Pagination.getPageOrThrow;
 @RequiredArgsConstructor
 public class ItemController {
     private final ItemService itemService;
-
-    private final String userIdHeader = "X-Sharer-User-Id";
+    private final ObjectMapper objectMapper;
 
     @PostMapping
-    public ItemDto postItem(@RequestHeader(userIdHeader) int userId, @Valid @RequestBody ItemDto itemDto) {
-        return itemService.createItem(userId, itemDto);
+    public ItemDto postItem(@SharerUser User user, @Valid @RequestBody ItemDto itemDto) {
+        return itemService.createItem(user.getId(), itemDto);
+    }
+
+    /**
+     * Creates up to {@link ItemService#MAX_BATCH} items at once. Answers every row in the order given: rejected
+     * rows carry an error and do not stop the rest.
+     */
+    @PostMapping("/batch")
+    public List<ItemBatchResult> postItems(@SharerUser User user, @RequestBody List<ItemDto> itemDtos) {
+        return itemService.createItems(user.getId(), itemDtos);
     }
 
     @GetMapping("/{id}")
-    public ItemDto getItem(@RequestHeader(userIdHeader) int userId, @PathVariable int id) {
-        return itemService.getItemById(userId, id);
+    public ItemDto getItem(@SharerUser User user, @PathVariable int id) {
+        return itemService.getItemById(user.getId(), id);
     }
 
     @GetMapping
-    public List<ItemDto> getAll(@RequestHeader(userIdHeader) int userId,
-                                @RequestParam(name = "from", required = false) Integer from,
-                                @RequestParam(name = "size", required = false) Integer size) {
-        return itemService.getAllItemsUser(userId, getPageOrThrow(from, size));
+    public ResponseEntity<List<ItemDto>> getAll(@SharerUser User user,
+                                                @RequestParam(name = "from", required = false) Integer from,
+                                                @RequestParam(name = "size", required = false) Integer size,
+                                                @RequestParam(name = "after", required = false) String after,
+                                                HttpServletRequest request, HttpServletResponse response) {
+        if (after != null) {
+            int pageSize = getSizeOrThrow(size);
+            return withNextCursor(itemService.getAllItemsUserAfter(user.getId(), Cursor.decode(after), pageSize),
+                    pageSize, itemDto -> Cursor.of(itemDto.getId()));
+        }
+        Pageable page = getPageOrThrow(from, size);
+        if (page.isUnpaged()) {
+            return RowStreaming.writeAll(request, response, objectMapper,
+                    (Consumer<ItemDto> rows) -> itemService.streamAllItemsUser(user.getId(), rows));
+        }
+        return ResponseEntity.ok(itemService.getAllItemsUser(user.getId(), page));
     }
 
     @GetMapping("/search")
-    public List<ItemDto> search(@RequestHeader(userIdHeader) int userId,
-                                @RequestParam String text,
-                                @RequestParam(name = "from", required = false) Integer from,
-                                @RequestParam(name = "size", required = false) Integer size) {
-        return itemService.searchByText(userId, text, getPageOrThrow(from, size));
+    public ResponseEntity<List<ItemDto>> search(@SharerUser User user,
+                                                @RequestParam String text,
+                                                @RequestParam(name = "from", required = false) Integer from,
+                                                @RequestParam(name = "size", required = false) Integer size,
+                                                HttpServletRequest request, HttpServletResponse response) {
+        Pageable page = getPageOrThrow(from, size);
+        if (page.isUnpaged()) {
+            return RowStreaming.writeAll(request, response, objectMapper,
+                    (Consumer<ItemDto> rows) -> itemService.streamSearchByText(user.getId(), text, rows));
+        }
+        return ResponseEntity.ok(itemService.searchByText(user.getId(), text, page));
     }
 
     @PatchMapping("/{id}")
-    public ItemDto patchItem(@RequestHeader(userIdHeader) int userId, @PathVariable int id, @RequestBody ItemDto itemDto) {
-        return itemService.change(userId, id, itemDto);
+    public ItemDto patchItem(@SharerUser User user, @PathVariable int id, @RequestBody ItemDto itemDto) {
+        return itemService.change(user.getId(), id, itemDto);
     }
 
     @DeleteMapping("/{id}")
-    public void deleteItem(@RequestHeader(userIdHeader) int userId, @PathVariable int id) {
-        itemService.delete(userId, id);
+    public void deleteItem(@SharerUser User user, @PathVariable int id) {
+        itemService.delete(user.getId(), id);
     }
 
     @PostMapping("/{itemId}/comment")
-    public CommentDto postComment(@RequestHeader(userIdHeader) int userId,
+    public CommentDto postComment(@SharerUser User user,
                                   @PathVariable int itemId, @RequestBody @Valid CommentDto commentDto) {
-        return itemService.writeComment(userId, itemId, commentDto);
+        return itemService.writeComment(user.getId(), itemId, commentDto);
     }
 }
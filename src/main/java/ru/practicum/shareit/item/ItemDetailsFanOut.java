@@ -0,0 +1,99 @@
+package ru.practicum.shareit.item;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.QueryCounter;
+import ru.practicum.shareit.item.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent queries assembling an item page side by side, so the page waits for the slowest
+ * query instead of their sum. Each query takes a connection of its own, which is why this is off unless
+ * {@code shareit.item-details.parallel} is set. The pool is bounded: once its queue is full the caller runs
+ * the query itself. A query not done within {@code shareit.item-details.timeout} fails the page and is cancelled:
+ * a queued query never starts and a running one has its worker interrupted.
+ */
+@Component
+public class ItemDetailsFanOut implements DisposableBean {
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final Executor executor;
+    private final boolean parallel;
+    private final Duration timeout;
+
+    @Autowired
+    public ItemDetailsFanOut(@Value("${shareit.item-details.parallel:false}") boolean parallel,
+                             @Value("${shareit.item-details.threads:16}") int threads,
+                             @Value("${shareit.item-details.timeout:2s}") Duration timeout) {
+        this(parallel ? new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new CustomizableThreadFactory("item-details-"),
+                new ThreadPoolExecutor.CallerRunsPolicy()) : Runnable::run, parallel, timeout);
+    }
+
+    ItemDetailsFanOut(Executor executor, boolean parallel, Duration timeout) {
+        this.executor = executor;
+        this.parallel = parallel;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Starts a query and returns a handle waiting for its result. Sequential mode runs the query right away.
+     */
+    public <T> Supplier<T> fork(String name, Supplier<T> query) {
+        if (!parallel) {
+            T result = query.get();
+            return () -> result;
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(QueryCounter.inCurrentScope(() -> {
+            try {
+                future.complete(query.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }), null);
+        executor.execute(task);
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((result, e) -> {
+            if (e instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+        return () -> join(name, future);
+    }
+
+    private <T> T join(String name, CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ServiceUnavailableException(String.format("%s took longer than %s ms", name,
+                        timeout.toMillis()));
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+}
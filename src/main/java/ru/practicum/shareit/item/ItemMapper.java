@@ -21,6 +21,6 @@ public class ItemMapper {
 
     public static Item toItem(ItemDto itemDto) {
         return new Item(null, itemDto.getName(), itemDto.getDescription(),
-                itemDto.getAvailable(), null, null);
+                itemDto.getAvailable(), null, null, null);
     }
 }
@@ -1,40 +1,81 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
 import ru.practicum.shareit.booking.BookingMapper;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.dto.PartBookingDto;
+import ru.practicum.shareit.booking.dto.PartBookingView;
 import ru.practicum.shareit.item.comment.Comment;
 import ru.practicum.shareit.item.comment.CommentDto;
 import ru.practicum.shareit.item.comment.CommentMapper;
 import ru.practicum.shareit.item.comment.CommentRepository;
+import ru.practicum.shareit.item.comment.CommentView;
+import ru.practicum.shareit.item.dto.ItemBatchResult;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.exception.BadRequestException;
 import ru.practicum.shareit.item.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.request.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.ItemLockManager;
 
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ru.practicum.shareit.utils.AfterTransaction.afterCommit;
+import static ru.practicum.shareit.utils.OptimisticRetry.retryOnConflict;
 
 @Service
 @RequiredArgsConstructor
 public class ItemService {
+    private static final int STREAM_CHUNK = 500;
+    public static final int MAX_BATCH = 10_000;
+
     private final ItemRepository itemRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSearchCache itemSearchCache;
+    private final ItemDetailsFanOut itemDetailsFanOut;
+    private final ItemLockManager itemLockManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final TransactionTemplate transactionTemplate;
 
+    @Transactional
     public ItemDto createItem(int userId, ItemDto itemDto) {
         User user = getUserOtherThrow(userId);
         Item item = ItemMapper.toItem(itemDto);
@@ -45,76 +86,174 @@ public class ItemService {
             item.setRequest(itemRequest);
         }
 
-        return ItemMapper.toItemDto(itemRepository.save(item));
+        Item savedItem = itemRepository.save(item);
+        itemSearchIndex.onSaved(savedItem);
+        itemSearchCache.onChanged(savedItem.getId(), null, ItemSearchCache.Snapshot.of(savedItem));
+
+        return ItemMapper.toItemDto(savedItem);
+    }
+
+    /**
+     * Creates the valid rows of {@code itemDtos} in one transaction and reports every row, in the order given.
+     * Rows are persisted {@link Item#ID_BLOCK} at a time, one JDBC batch and one id block each, and detached
+     * once flushed, without filling the second-level cache. A row failing validation or naming an unknown request
+     * is rejected without failing the others.
+     */
+    @Transactional
+    public List<ItemBatchResult> createItems(int userId, List<ItemDto> itemDtos) {
+        User user = getUserOtherThrow(userId);
+        if (itemDtos.size() > MAX_BATCH) {
+            throw new BadRequestException(String.format("a batch holds at most %s items, got %s",
+                    MAX_BATCH, itemDtos.size()));
+        }
+        entityManager.setProperty(AvailableSettings.JPA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        List<Integer> requestIds = itemDtos.stream()
+                .filter(itemDto -> itemDto != null && itemDto.getRequestId() != null)
+                .map(ItemDto::getRequestId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Integer, ItemRequest> requests = new HashMap<>();
+        if (!requestIds.isEmpty()) {
+            itemRequestRepository.findAllById(requestIds)
+                    .forEach(itemRequest -> requests.put(itemRequest.getId(), itemRequest));
+        }
+
+        List<ItemBatchResult> results = new ArrayList<>(itemDtos.size());
+        List<Item> pending = new ArrayList<>(Item.ID_BLOCK);
+        List<Integer> pendingIndexes = new ArrayList<>(Item.ID_BLOCK);
+        for (int index = 0; index < itemDtos.size(); index++) {
+            ItemDto itemDto = itemDtos.get(index);
+            String error = validateNewItem(itemDto, requests);
+            if (error != null) {
+                results.add(ItemBatchResult.rejected(index, error));
+                continue;
+            }
+            Item item = ItemMapper.toItem(itemDto);
+            item.setOwner(user);
+            if (itemDto.getRequestId() != null) {
+                item.setRequest(requests.get(itemDto.getRequestId()));
+            }
+            entityManager.persist(item);
+            pending.add(item);
+            pendingIndexes.add(index);
+            results.add(null);
+            if (pending.size() == Item.ID_BLOCK) {
+                flushBatch(pending, pendingIndexes, results);
+            }
+        }
+        flushBatch(pending, pendingIndexes, results);
+        if (results.stream().anyMatch(result -> result.getItem() != null)) {
+            itemSearchCache.invalidateAll();
+        }
+
+        return results;
     }
 
+    /**
+     * Not transactional: each query reads in a read-only transaction of its own, so the bookings and comments
+     * {@link ItemDetailsFanOut} may load side by side do not wait on a connection held here.
+     */
     public ItemDto getItemById(int userId, int id) {
         User user = getUserOtherThrow(userId);
         Item item = itemRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException(String.format("item id N%s", id)));
         ItemDto itemDto = ItemMapper.toItemDto(item);
-        if (item.getOwner().equals(user)) {
-            List<Booking> bookings = bookingRepository.findAllByItemIdOrderByStart(id);
+        boolean owner = item.getOwner().getId().equals(user.getId());
+        Supplier<List<Booking>> itemBookings = owner
+                ? itemDetailsFanOut.fork("bookings", () -> bookingRepository.findAllByItemIdOrderByStart(id))
+                : List::of;
+        Supplier<List<CommentDto>> comments = itemDetailsFanOut.fork("comments",
+                () -> commentRepository.findAllByItemIdOrderByCreatedDesc(id)
+                        .stream()
+                        .map(CommentMapper::toCommentDto)
+                        .collect(Collectors.toList()));
+        if (owner) {
+            List<Booking> bookings = itemBookings.get();
             PartBookingDto lastBooking = findLastBooking(bookings)
-                    .map(BookingMapper::toPartBookingDto).orElse(null);
+                    .map(BookingMapper::toPartBookingDto)
+                    .or(() -> bookingRepository.findLastArchivedBooking(id).map(BookingMapper::toPartBookingDto))
+                    .orElse(null);
             PartBookingDto nextBooking = findNextBooking(bookings)
                     .map(BookingMapper::toPartBookingDto).orElse(null);
             itemDto.setLastBooking(lastBooking);
             itemDto.setNextBooking(nextBooking);
         }
-        itemDto.setComments(commentRepository.findAllByItemIdOrderByCreatedDesc(id)
-                .stream()
-                .map(CommentMapper::toCommentDto)
-                .collect(Collectors.toList()));
+        itemDto.setComments(comments.get());
 
         return itemDto;
     }
 
+    @Transactional(readOnly = true)
     public List<ItemDto> getAllItemsUser(int userId, Pageable page) {
         getUserOtherThrow(userId);
-        return itemRepository.findAllByOwnerId(userId, page).stream()
-                .map((item) -> {
-                    ItemDto itemDto = ItemMapper.toItemDto(item);
-                    List<Booking> bookings = bookingRepository.findAllByItemIdOrderByStart(item.getId());
-                    PartBookingDto lastBooking = findLastBooking(bookings)
-                            .map(BookingMapper::toPartBookingDto).orElse(null);
-                    PartBookingDto nextBooking = findNextBooking(bookings)
-                            .map(BookingMapper::toPartBookingDto).orElse(null);
-                    itemDto.setLastBooking(lastBooking);
-                    itemDto.setNextBooking(nextBooking);
-                    itemDto.setComments(commentRepository.findAllByItemIdOrderByCreatedDesc(item.getId())
-                            .stream()
-                            .map(CommentMapper::toCommentDto)
-                            .collect(Collectors.toList()));
+        return toOwnerItemDtos(itemRepository.findAllByOwnerId(userId, page));
+    }
 
-                    return itemDto;
-                })
-                .collect(Collectors.toList());
+    /**
+     * Hands every item of the user to {@code sink} while it is read, in ascending id order, with bookings and
+     * comments loaded a chunk of items at a time.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllItemsUser(int userId, Consumer<ItemDto> sink) {
+        getUserOtherThrow(userId);
+        try (Stream<Item> items = itemRepository.streamAllByOwnerIdOrderById(userId)) {
+            forEachChunk(items, chunk -> toOwnerItemDtos(chunk).forEach(sink));
+        }
     }
 
+    @Transactional(readOnly = true)
+    public List<ItemDto> getAllItemsUserAfter(int userId, Cursor after, int size) {
+        getUserOtherThrow(userId);
+        int afterId = after == null ? 0 : after.getId();
+        return toOwnerItemDtos(itemRepository.findAllByOwnerIdAndIdGreaterThanOrderById(userId, afterId,
+                PageRequest.of(0, size)));
+    }
+
+    @Transactional
     public void delete(int userId, int id) {
         getUserOtherThrow(userId);
+        ItemSearchCache.Snapshot before = itemRepository.findById(id)
+                .map(ItemSearchCache.Snapshot::of)
+                .orElse(null);
         itemRepository.deleteById(id);
+        afterCommit(() -> {
+            entityManagerFactory.getCache().evict(Item.class, id);
+            bookingIntervalIndex.evict(id);
+        });
+        itemSearchIndex.onDeleted(id);
+        itemSearchCache.onChanged(id, before, null);
     }
 
+    /**
+     * Not transactional: every optimistic retry runs in a read-write transaction of its own, all of them under the
+     * item lock, so each attempt reads the item from the primary and a retry sees the version that won.
+     */
     public ItemDto change(int userId, int id, ItemDto itemDto) {
         User user = getUserOtherThrow(userId);
-        Item itemInDb = itemRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(String.format("item id N%s", id)));
-        if (!user.equals(itemInDb.getOwner())) {
-            throw new NotFoundException(String.format("the item id N%s has a different owner", id));
-        }
-        if (itemDto.getName() != null) {
-            itemInDb.setName(itemDto.getName());
-        }
-        if (itemDto.getDescription() != null) {
-            itemInDb.setDescription(itemDto.getDescription());
-        }
-        if (itemDto.getAvailable() != null) {
-            itemInDb.setAvailable(itemDto.getAvailable());
-        }
 
-        return ItemMapper.toItemDto(itemRepository.save(itemInDb));
+        return itemLockManager.withLock(id, () -> retryOnConflict(() -> transactionTemplate.execute(status -> {
+            Item itemInDb = itemRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException(String.format("item id N%s", id)));
+            if (!user.getId().equals(itemInDb.getOwner().getId())) {
+                throw new NotFoundException(String.format("the item id N%s has a different owner", id));
+            }
+            ItemSearchCache.Snapshot before = ItemSearchCache.Snapshot.of(itemInDb);
+            if (itemDto.getName() != null) {
+                itemInDb.setName(itemDto.getName());
+            }
+            if (itemDto.getDescription() != null) {
+                itemInDb.setDescription(itemDto.getDescription());
+            }
+            if (itemDto.getAvailable() != null) {
+                itemInDb.setAvailable(itemDto.getAvailable());
+            }
+
+            Item savedItem = itemRepository.save(itemInDb);
+            itemSearchIndex.onSaved(savedItem);
+            itemSearchCache.onChanged(id, before, ItemSearchCache.Snapshot.of(savedItem));
+
+            return ItemMapper.toItemDto(savedItem);
+        })));
     }
 
     public List<ItemDto> searchByText(int userId, String text, Pageable page) {
@@ -123,22 +262,50 @@ public class ItemService {
             return List.of();
         }
 
-        return itemRepository.findAllByText(text, page)
-                .stream()
-                .map(ItemMapper::toItemDto).collect(Collectors.toList());
+        return itemSearchCache.get(text, page, () -> {
+            if (itemSearchIndex.isWarm()) {
+                return itemSearchIndex.search(text, page);
+            }
+
+            return itemRepository.findAllByText(text, page)
+                    .stream()
+                    .map(ItemMapper::toItemDto).collect(Collectors.toList());
+        });
     }
 
-    public CommentDto writeComment(int userId, int itemId, CommentDto commentDto) {
+    /**
+     * Hands every available item matching the text to {@code sink} in ascending id order, bypassing
+     * {@link ItemSearchCache}, which holds pages only.
+     */
+    @Transactional(readOnly = true)
+    public void streamSearchByText(int userId, String text, Consumer<ItemDto> sink) {
         getUserOtherThrow(userId);
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        if (itemSearchIndex.isWarm()) {
+            itemSearchIndex.forEachMatch(text, sink);
+            return;
+        }
+
+        try (Stream<Item> items = itemRepository.streamAllByText(text)) {
+            forEachChunk(items, chunk -> chunk.forEach(item -> sink.accept(ItemMapper.toItemDto(item))));
+        }
+    }
+
+    @Transactional
+    public CommentDto writeComment(int userId, int itemId, CommentDto commentDto) {
+        User author = getUserOtherThrow(userId);
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new NotFoundException(String.format("item id N%s", itemId)));
         List<Booking> bookings = bookingRepository
                 .findAllByItemIdAndBookerIdAndEndBeforeOrderByStartDesc(item.getId(), userId, LocalDateTime.now());
-        if (bookings.isEmpty()) {
+        if (bookings.isEmpty() && !bookingRepository.existsArchivedByItemIdAndBookerIdAndEndBefore(item.getId(),
+                userId, LocalDateTime.now())) {
             throw new BadRequestException(String.format("the user id N%s did not book the item", userId));
         }
         Comment comment = Comment.builder()
-                .author(getUserOtherThrow(userId))
+                .author(author)
                 .item(item)
                 .text(commentDto.getText())
                 .created(LocalDateTime.now())
@@ -147,18 +314,96 @@ public class ItemService {
         return CommentMapper.toCommentDto(commentRepository.save(comment));
     }
 
+    private String validateNewItem(ItemDto itemDto, Map<Integer, ItemRequest> requests) {
+        if (itemDto == null) {
+            return "the item is missing";
+        }
+        Set<ConstraintViolation<ItemDto>> violations = validator.validate(itemDto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (itemDto.getRequestId() != null && !requests.containsKey(itemDto.getRequestId())) {
+            return String.format("not found entity Request id N%s", itemDto.getRequestId());
+        }
+        return null;
+    }
+
+    private void flushBatch(List<Item> pending, List<Integer> pendingIndexes, List<ItemBatchResult> results) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        itemSearchIndex.onSavedAll(pending);
+        for (int i = 0; i < pending.size(); i++) {
+            results.set(pendingIndexes.get(i), ItemBatchResult.created(pendingIndexes.get(i),
+                    ItemMapper.toItemDto(pending.get(i))));
+        }
+        entityManager.clear();
+        pending.clear();
+        pendingIndexes.clear();
+    }
+
     private User getUserOtherThrow(int userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
+        return userCache.get(userId);
+    }
+
+    /**
+     * Detaches every chunk once it is handled, so the persistence context stays as small as one chunk.
+     */
+    private void forEachChunk(Stream<Item> items, Consumer<List<Item>> action) {
+        List<Item> chunk = new ArrayList<>(STREAM_CHUNK);
+        Iterator<Item> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == STREAM_CHUNK || !iterator.hasNext()) {
+                action.accept(chunk);
+                chunk.clear();
+                entityManager.clear();
+            }
+        }
+    }
+
+    private List<ItemDto> toOwnerItemDtos(List<Item> items) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> itemIds = items.stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, PartBookingDto> lastBookings = bookingRepository.findLastBookings(itemIds, now)
+                .stream()
+                .collect(Collectors.toMap(PartBookingView::getItemId, BookingMapper::toPartBookingDto));
+        Map<Integer, PartBookingDto> nextBookings = bookingRepository.findNextBookings(itemIds, now)
+                .stream()
+                .collect(Collectors.toMap(PartBookingView::getItemId, BookingMapper::toPartBookingDto));
+        Map<Integer, List<CommentDto>> comments = commentRepository.findAllByItemIdIn(itemIds)
+                .stream()
+                .collect(Collectors.groupingBy(CommentView::getItemId,
+                        Collectors.mapping(CommentMapper::toCommentDto, Collectors.toList())));
+
+        return items.stream()
+                .map((item) -> {
+                    ItemDto itemDto = ItemMapper.toItemDto(item);
+                    itemDto.setLastBooking(lastBookings.get(item.getId()));
+                    itemDto.setNextBooking(nextBookings.get(item.getId()));
+                    itemDto.setComments(comments.getOrDefault(item.getId(), List.of()));
+
+                    return itemDto;
+                })
+                .collect(Collectors.toList());
     }
 
-    private Optional<Booking> findLastBooking(List<Booking> bookings) {
+    static Optional<Booking> findLastBooking(List<Booking> bookings) {
         return bookings.stream()
                 .filter(booking -> booking.getEnd().isBefore(LocalDateTime.now()))
                 .reduce((first, second) -> second);
     }
 
-    private Optional<Booking> findNextBooking(List<Booking> bookings) {
+    static Optional<Booking> findNextBooking(List<Booking> bookings) {
         return bookings.stream()
                 .filter(booking -> booking.getEnd().isAfter(LocalDateTime.now()))
                 .reduce((first, second) -> first);
@@ -18,7 +18,13 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "comments")
+@NamedEntityGraph(name = Comment.LISTING_GRAPH, attributeNodes = @NamedAttributeNode("author"))
 public class Comment {
+    /**
+     * Comments of an item as shown to users: only the author's name is read.
+     */
+    public static final String LISTING_GRAPH = "Comment.listing";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "comment_id")
@@ -27,11 +33,11 @@ public class Comment {
     @Column(name = "text", nullable = false, length = 1000)
     private String text;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "item_id", nullable = false)
     private Item item;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
 
@@ -7,4 +7,11 @@ public class CommentMapper {
                 comment.getAuthor().getName(),
                 comment.getCreated());
     }
+
+    public static CommentDto toCommentDto(CommentView comment) {
+        return new CommentDto(comment.getId(),
+                comment.getText(),
+                comment.getAuthorName(),
+                comment.getCreated());
+    }
 }
@@ -1,9 +1,19 @@
 package ru.practicum.shareit.item.comment;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Integer> {
+    @EntityGraph(Comment.LISTING_GRAPH)
     List<Comment> findAllByItemIdOrderByCreatedDesc(int id);
+
+    @Query("SELECT c.item.id AS itemId, c.id AS id, c.text AS text, c.author.name AS authorName, c.created AS created " +
+            "FROM Comment c " +
+            "WHERE c.item.id IN ?1 " +
+            "ORDER BY c.created DESC")
+    List<CommentView> findAllByItemIdIn(Collection<Integer> itemIds);
 }
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.*;
+
+/**
+ * Outcome of one row of a batch of new items: the created item, or why the row was rejected.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class ItemBatchResult {
+    private final int index;
+    private final ItemDto item;
+    private final String error;
+
+    public static ItemBatchResult created(int index, ItemDto item) {
+        return new ItemBatchResult(index, item, null);
+    }
+
+    public static ItemBatchResult rejected(int index, String error) {
+        return new ItemBatchResult(index, null, error);
+    }
+}
@@ -1,6 +1,10 @@
 package ru.practicum.shareit.item.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 
@@ -21,10 +25,30 @@ import javax.persistence.*;
 
 @Entity
 @Table(name = "items")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedEntityGraph(name = Item.DETAIL_GRAPH,
+        attributeNodes = {@NamedAttributeNode("owner"), @NamedAttributeNode(value = "request", subgraph = "request")},
+        subgraphs = @NamedSubgraph(name = "request", attributeNodes = @NamedAttributeNode("user")))
 public class Item {
+    /**
+     * A single item with everything it refers to: the owner checks and booking responses read them all.
+     */
+    public static final String DETAIL_GRAPH = "Item.detail";
+    /**
+     * Ids taken from {@code ITEMS_SEQ} per round trip; must match the increment of the sequence.
+     */
+    public static final int ID_BLOCK = 50;
+
     @Id
     @Column(name = "item_id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @GenericGenerator(name = "items_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "ITEMS_SEQ"),
+                    @Parameter(name = "increment_size", value = "" + ID_BLOCK),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     private Integer id;
 
     @Column(name = "name", length = 100, nullable = false)
@@ -36,11 +60,15 @@ public class Item {
     @Column(name = "available", nullable = false)
     private Boolean available;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "request_id")
     private ItemRequest request;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
 }
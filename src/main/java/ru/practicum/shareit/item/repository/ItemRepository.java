@@ -1,28 +1,68 @@
 package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchView;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ItemRepository extends JpaRepository<Item, Integer> {
+    String STREAM_FETCH_SIZE = "500";
+
+    @Override
+    @EntityGraph(Item.DETAIL_GRAPH)
+    Optional<Item> findById(Integer id);
+
     List<Item> findAllByOwnerId(int id, Pageable page);
 
+    List<Item> findAllByOwnerIdAndIdGreaterThanOrderById(int id, int afterId, Pageable page);
+
+    /**
+     * Read in batches while the stream is consumed, without filling the second-level cache.
+     */
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.CACHE_MODE, value = "IGNORE")})
+    Stream<Item> streamAllByOwnerIdOrderById(int id);
+
     @Query("SELECT i " +
             "FROM Item i " +
             "WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', ?1, '%')) " +
             "OR LOWER(i.description) LIKE LOWER(CONCAT('%', ?1, '%')) ) " +
-            "AND i.available IS TRUE")
+            "AND i.available IS TRUE " +
+            "ORDER BY i.id")
     List<Item> findAllByText(String text, Pageable page);
 
     @Query("SELECT i " +
             "FROM Item i " +
-            "WHERE i.request IS NOT NULL")
-    List<Item> findAllWithRequestNotNull();
+            "WHERE (LOWER(i.name) LIKE LOWER(CONCAT('%', ?1, '%')) " +
+            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', ?1, '%')) ) " +
+            "AND i.available IS TRUE " +
+            "ORDER BY i.id")
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.annotations.QueryHints.CACHE_MODE, value = "IGNORE")})
+    Stream<Item> streamAllByText(String text);
+
+    @Query("SELECT i.id AS id, i.name AS name, i.description AS description, i.request.id AS requestId " +
+            "FROM Item i " +
+            "WHERE i.available IS TRUE AND i.id > ?1 " +
+            "ORDER BY i.id")
+    List<ItemSearchView> findAvailableForSearch(int afterId, Pageable page);
 
+    @Query("SELECT i " +
+            "FROM Item i " +
+            "WHERE i.request.id = ?1")
     List<Item> findAllByRequestId(int requestId);
 
-    List<Item> findAllByRequestIdNotNull();
+    @Query("SELECT i " +
+            "FROM Item i " +
+            "WHERE i.request.id IN ?1")
+    List<Item> findAllByRequestIdIn(Collection<Integer> requestIds);
 }
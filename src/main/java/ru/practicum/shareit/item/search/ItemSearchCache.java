@@ -0,0 +1,280 @@
+package ru.practicum.shareit.item.search;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static ru.practicum.shareit.utils.AfterTransaction.afterCommit;
+
+/**
+ * Search results by lower-cased text and page, bounded in size (least recently used first out) and in age.
+ * A write to an item drops only the pages it can change: those of queries the item matches before or after
+ * the write, up to the page ending past the item, since results are in ascending id order.
+ * {@link #invalidateAll()} moves to a new generation instead, for writes that touch items wholesale.
+ * Cached results are shared, do not modify them.
+ */
+@Component
+@ManagedResource(objectName = "ru.practicum.shareit:type=ItemSearchCache")
+public class ItemSearchCache implements MeterBinder {
+    private static final int MAX_SIZE = 10_000;
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Key, Entry> entries;
+    private long generation;
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long invalidatedEntries;
+    private long evictions;
+
+    public ItemSearchCache() {
+        this(MAX_SIZE, TTL, System::nanoTime);
+    }
+
+    ItemSearchCache(int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ItemSearchCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public List<ItemDto> get(String text, Pageable page, Supplier<List<ItemDto>> search) {
+        Key key = new Key(text.toLowerCase(), page);
+        long seenInvalidations;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.generation == generation
+                    && nanoClock.getAsLong() - entry.loadedAt < ttlNanos) {
+                hits++;
+                return entry.items;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            seenInvalidations = invalidations;
+        }
+        List<ItemDto> items = List.copyOf(search.get());
+        synchronized (entries) {
+            // an item written while we were searching might be missing from the result, so skip caching it
+            if (invalidations == seenInvalidations) {
+                entries.put(key, new Entry(items, generation, nanoClock.getAsLong()));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Drops, once the surrounding transaction (if any) commits, the pages an item write can change.
+     *
+     * @param before the item as read before the write, {@code null} for a new item
+     * @param after  the item as written, {@code null} for a deleted item
+     */
+    public void onChanged(int itemId, Snapshot before, Snapshot after) {
+        afterCommit(() -> invalidate(itemId, before, after));
+    }
+
+    public void invalidateAll() {
+        afterCommit(() -> {
+            synchronized (entries) {
+                invalidations++;
+                generation++;
+            }
+        });
+    }
+
+    private void invalidate(int itemId, Snapshot before, Snapshot after) {
+        synchronized (entries) {
+            invalidations++;
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                Key key = entry.getKey();
+                if ((matches(before, key.text) || matches(after, key.text))
+                        && reaches(entry.getValue().items, key.size, itemId)) {
+                    iterator.remove();
+                    invalidatedEntries++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a page holds the item or ends past it; a short last page can grow by the item.
+     */
+    private static boolean reaches(List<ItemDto> items, int pageSize, int itemId) {
+        return items.size() < pageSize || items.get(items.size() - 1).getId() >= itemId;
+    }
+
+    private static boolean matches(Snapshot item, String text) {
+        return item != null && item.available && (contains(item.name, text) || contains(item.description, text));
+    }
+
+    private static boolean contains(String field, String text) {
+        return field != null && field.toLowerCase().contains(text);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, ItemSearchCache::getHits)
+                .tag("cache", "itemSearch")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, ItemSearchCache::getMisses)
+                .tag("cache", "itemSearch")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, ItemSearchCache::getEvictions)
+                .tag("cache", "itemSearch")
+                .register(registry);
+        FunctionCounter.builder("cache.invalidations", this, ItemSearchCache::getInvalidatedEntries)
+                .description("Entries dropped by item writes")
+                .tag("cache", "itemSearch")
+                .register(registry);
+        FunctionCounter.builder("cache.generations", this, ItemSearchCache::getGeneration)
+                .description("Times every entry was invalidated at once")
+                .tag("cache", "itemSearch")
+                .register(registry);
+        Gauge.builder("cache.size", this, ItemSearchCache::getSize)
+                .tag("cache", "itemSearch")
+                .register(registry);
+    }
+
+    @ManagedAttribute(description = "Searches answered from the cache")
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    @ManagedAttribute(description = "Searches run against the index or the database")
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    @ManagedAttribute(description = "Share of searches answered from the cache")
+    public double getHitRatio() {
+        synchronized (entries) {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    @ManagedAttribute(description = "Entries dropped because an item write could change them")
+    public long getInvalidatedEntries() {
+        synchronized (entries) {
+            return invalidatedEntries;
+        }
+    }
+
+    @ManagedAttribute(description = "Times every entry was invalidated at once")
+    public long getGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    @ManagedAttribute(description = "Entries dropped to stay within the size bound")
+    public long getEvictions() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    @ManagedAttribute(description = "Result pages currently cached")
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * The fields of an item search looks at, copied before a write changes them.
+     */
+    public static final class Snapshot {
+        private final boolean available;
+        private final String name;
+        private final String description;
+
+        private Snapshot(boolean available, String name, String description) {
+            this.available = available;
+            this.name = name;
+            this.description = description;
+        }
+
+        public static Snapshot of(Item item) {
+            return new Snapshot(Boolean.TRUE.equals(item.getAvailable()), item.getName(), item.getDescription());
+        }
+    }
+
+    private static final class Key {
+        private final String text;
+        private final long offset;
+        private final int size;
+
+        private Key(String text, Pageable page) {
+            this.text = text;
+            this.offset = page.isPaged() ? page.getOffset() : 0;
+            this.size = page.isPaged() ? page.getPageSize() : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return offset == key.offset && size == key.size && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, offset, size);
+        }
+    }
+
+    private static final class Entry {
+        private final List<ItemDto> items;
+        private final long generation;
+        private final long loadedAt;
+
+        private Entry(List<ItemDto> items, long generation, long loadedAt) {
+            this.items = items;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
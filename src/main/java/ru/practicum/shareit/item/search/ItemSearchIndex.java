@@ -0,0 +1,342 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static ru.practicum.shareit.utils.AfterTransaction.afterCommit;
+
+/**
+ * Trigram inverted index over the name and description of available items.
+ * Answers the same case-insensitive substring search as {@link ItemRepository#findAllByText}
+ * in ascending id order. Queries shorter than a trigram are answered by scanning the indexed items.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    private static final int GRAM = 3;
+    private static final int WARM_UP_BATCH = 1000;
+
+    private final ItemRepository itemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final TreeMap<Integer, IndexedItem> items = new TreeMap<>();
+    private final Set<Integer> touchedDuringWarmUp = ConcurrentHashMap.newKeySet();
+    private volatile boolean warmingUp;
+    private volatile boolean warm;
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        warmingUp = true;
+        long started = System.currentTimeMillis();
+        try {
+            int lastId = 0;
+            List<ItemSearchView> batch;
+            do {
+                batch = itemRepository.findAvailableForSearch(lastId, PageRequest.of(0, WARM_UP_BATCH));
+                load(batch);
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == WARM_UP_BATCH);
+            warm = true;
+            log.info("Item search index is warm: {} items in {} ms", size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.warn("Item search index warm up failed, search stays on the database", e);
+        } finally {
+            warmingUp = false;
+            touchedDuringWarmUp.clear();
+        }
+    }
+
+    /**
+     * Applies a saved item to the index once the surrounding transaction (if any) commits.
+     */
+    public void onSaved(Item item) {
+        IndexedItem indexed = toIndexed(item);
+        int id = item.getId();
+        afterCommit(() -> apply(id, indexed));
+    }
+
+    /**
+     * Applies saved items to the index together, under one write lock, once the surrounding transaction commits.
+     */
+    public void onSavedAll(List<Item> items) {
+        int[] ids = items.stream().mapToInt(Item::getId).toArray();
+        IndexedItem[] indexed = items.stream().map(ItemSearchIndex::toIndexed).toArray(IndexedItem[]::new);
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    apply(ids[i], indexed[i]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void onDeleted(int id) {
+        afterCommit(() -> apply(id, null));
+    }
+
+    public List<ItemDto> search(String text, Pageable page) {
+        return find(lowerCase(text), page).stream()
+                .map(IndexedItem::toItemDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hands every match to {@code sink} in ascending id order. Matches are collected under the read lock and
+     * mapped after it is released, so writers never wait for the consumer.
+     */
+    public void forEachMatch(String text, Consumer<ItemDto> sink) {
+        for (IndexedItem item : find(lowerCase(text), Pageable.unpaged())) {
+            sink.accept(item.toItemDto());
+        }
+    }
+
+    private List<IndexedItem> find(char[] query, Pageable page) {
+        long offset = page.isPaged() ? page.getOffset() : 0;
+        int limit = page.isPaged() ? page.getPageSize() : Integer.MAX_VALUE;
+        List<IndexedItem> result = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (query.length < GRAM) {
+                for (IndexedItem item : items.values()) {
+                    if (item.matches(query) && offset-- <= 0) {
+                        result.add(item);
+                        if (result.size() == limit) {
+                            break;
+                        }
+                    }
+                }
+                return result;
+            }
+
+            Postings[] lists = trigramsOf(query).stream()
+                    .map(postings::get)
+                    .toArray(Postings[]::new);
+            if (Arrays.stream(lists).anyMatch(list -> list == null)) {
+                return result;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            Postings smallest = lists[0];
+            for (int i = 0; i < smallest.size && result.size() < limit; i++) {
+                int id = smallest.ids[i];
+                if (!containedInAll(id, lists)) {
+                    continue;
+                }
+                IndexedItem item = items.get(id);
+                if (item.matches(query) && offset-- <= 0) {
+                    result.add(item);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load(List<ItemSearchView> batch) {
+        lock.writeLock().lock();
+        try {
+            for (ItemSearchView item : batch) {
+                if (!touchedDuringWarmUp.contains(item.getId())) {
+                    put(new IndexedItem(item.getId(), item.getName(), item.getDescription(), item.getRequestId()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(int id, IndexedItem item) {
+        lock.writeLock().lock();
+        try {
+            if (warmingUp) {
+                touchedDuringWarmUp.add(id);
+            }
+            remove(id);
+            if (item != null) {
+                put(item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static IndexedItem toIndexed(Item item) {
+        return Boolean.TRUE.equals(item.getAvailable())
+                ? new IndexedItem(item.getId(), item.getName(), item.getDescription(),
+                item.getRequest() == null ? null : item.getRequest().getId())
+                : null;
+    }
+
+    private void put(IndexedItem item) {
+        remove(item.id);
+        items.put(item.id, item);
+        for (long trigram : item.trigrams()) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(item.id);
+        }
+    }
+
+    private void remove(int id) {
+        IndexedItem old = items.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (long trigram : old.trigrams()) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private static boolean containedInAll(int id, Postings[] lists) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char[] lowerCase(String text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(text.charAt(i));
+        }
+        return chars;
+    }
+
+    private static Set<Long> trigramsOf(char[] text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length; i++) {
+            trigrams.add(((long) text[i] << 32) | ((long) text[i + 1] << 16) | text[i + 2]);
+        }
+        return trigrams;
+    }
+
+    private static boolean containsIgnoreCase(String text, char[] query) {
+        if (text == null) {
+            return false;
+        }
+        for (int from = 0; from + query.length <= text.length(); from++) {
+            int i = 0;
+            while (i < query.length && Character.toLowerCase(text.charAt(from + i)) == query[i]) {
+                i++;
+            }
+            if (i == query.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class IndexedItem {
+        private final int id;
+        private final String name;
+        private final String description;
+        private final Integer requestId;
+
+        private IndexedItem(int id, String name, String description, Integer requestId) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.requestId = requestId;
+        }
+
+        private boolean matches(char[] query) {
+            return containsIgnoreCase(name, query) || containsIgnoreCase(description, query);
+        }
+
+        private Set<Long> trigrams() {
+            Set<Long> trigrams = name == null ? new HashSet<>() : trigramsOf(lowerCase(name));
+            if (description != null) {
+                trigrams.addAll(trigramsOf(lowerCase(description)));
+            }
+            return trigrams;
+        }
+
+        private ItemDto toItemDto() {
+            return new ItemDto(id, name, description, true, null, null, null, requestId);
+        }
+    }
+
+    /**
+     * Sorted, growable array of item ids sharing one trigram.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void add(int id) {
+            // new items come with ids above every indexed one
+            int position = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            position = position < 0 ? -position - 1 : position;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item.search;
+
+public interface ItemSearchView {
+    Integer getId();
+
+    String getName();
+
+    String getDescription();
+
+    Integer getRequestId();
+}
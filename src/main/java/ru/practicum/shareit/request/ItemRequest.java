@@ -1,6 +1,8 @@
 package ru.practicum.shareit.request;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import ru.practicum.shareit.user.User;
 
 import javax.persistence.*;
@@ -19,6 +21,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "item_request")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ItemRequest {
     @Id
     @Column(name = "item_request_id")
@@ -31,7 +35,7 @@ public class ItemRequest {
     @Column(name = "description", nullable = false, length = 500)
     private String description;
 
-    @ManyToOne
-    @JoinColumn(name = "user_id")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
     private User user;
 }
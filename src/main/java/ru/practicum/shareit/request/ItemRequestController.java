@@ -3,6 +3,8 @@ package ru.practicum.shareit.request;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.user.SharerUser;
+import ru.practicum.shareit.user.User;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -15,29 +17,28 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ItemRequestController {
     private final ItemRequestService itemRequestService;
-    private final String userIdHeader = "X-Sharer-User-Id";
 
     @PostMapping
-    public ItemRequestDto postRequest(@RequestHeader(userIdHeader) int userId,
+    public ItemRequestDto postRequest(@SharerUser User user,
                                       @RequestBody @Valid ItemRequestDto itemRequestDto) {
-        return itemRequestService.createRequest(userId, itemRequestDto);
+        return itemRequestService.createRequest(user.getId(), itemRequestDto);
     }
 
     @GetMapping
-    public List<ItemRequestDto> getOwnerRequests(@RequestHeader(userIdHeader) int userId) {
-        return itemRequestService.getAllByUser(userId);
+    public List<ItemRequestDto> getOwnerRequests(@SharerUser User user) {
+        return itemRequestService.getAllByUser(user.getId());
     }
 
     @GetMapping("/all")
-    public List<ItemRequestDto> getAllRequests(@RequestHeader(userIdHeader) int userId,
+    public List<ItemRequestDto> getAllRequests(@SharerUser User user,
                                                @RequestParam(name = "from", required = false) Integer from,
                                                @RequestParam(name = "size", required = false) Integer size) {
-        return itemRequestService.getAll(userId, from, size);
+        return itemRequestService.getAll(user.getId(), from, size);
     }
 
     @GetMapping("/{requestId}")
-    public ItemRequestDto getRequestById(@RequestHeader(userIdHeader) int userId,
+    public ItemRequestDto getRequestById(@SharerUser User user,
                                          @PathVariable int requestId) {
-        return itemRequestService.getRequestById(userId, requestId);
+        return itemRequestService.getRequestById(user.getId(), requestId);
     }
 }
@@ -5,6 +5,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.item.exception.BadRequestException;
 import ru.practicum.shareit.item.exception.NotFoundException;
 import ru.practicum.shareit.item.ItemMapper;
@@ -25,6 +26,7 @@ public class ItemRequestService {
     private final UserService userService;
     private final ItemRepository itemRepository;
 
+    @Transactional
     public ItemRequestDto createRequest(int userId, ItemRequestDto itemRequestDto) {
         User user = userService.getUserById(userId);
         ItemRequest itemRequest = ItemRequestMapper.toItemRequest(itemRequestDto);
@@ -35,14 +37,13 @@ public class ItemRequestService {
         return ItemRequestMapper.toItemRequestDto(savesRequest);
     }
 
+    @Transactional(readOnly = true)
     public List<ItemRequestDto> getAllByUser(int userId) {
         userService.getUserById(userId);
-        Map<Integer, List<ItemDto>> itemDtos = itemRepository.findAllByRequestIdNotNull()
-                .stream()
-                .map(ItemMapper::toItemDto)
-                .collect(Collectors.groupingBy(ItemDto::getRequestId));
+        List<ItemRequest> itemRequests = itemRequestRepository.findAllByUserIdOrderByCreatedDesc(userId);
+        Map<Integer, List<ItemDto>> itemDtos = findItemsByRequest(itemRequests);
 
-        return itemRequestRepository.findAllByUserIdOrderByCreatedDesc(userId)
+        return itemRequests
                 .stream()
                 .map(itemRequest -> {
                     ItemRequestDto itemRequestDto = ItemRequestMapper.toItemRequestDto(itemRequest);
@@ -56,6 +57,7 @@ public class ItemRequestService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ItemRequestDto> getAll(int userId, Integer from, Integer size) {
         if (size == null || from == null) {
             return List.of();
@@ -66,12 +68,10 @@ public class ItemRequestService {
         userService.getUserById(userId);
         Sort sort = Sort.by(Sort.Direction.DESC, "created");
         Pageable page = PageRequest.of(from, size, sort);
-        Map<Integer, List<ItemDto>> itemDtos = itemRepository.findAllWithRequestNotNull()
-                .stream()
-                .map(ItemMapper::toItemDto)
-                .collect(Collectors.groupingBy(ItemDto::getRequestId));
+        List<ItemRequest> itemRequests = itemRequestRepository.findAllByUserIdIsNot(userId, page);
+        Map<Integer, List<ItemDto>> itemDtos = findItemsByRequest(itemRequests);
 
-        return itemRequestRepository.findAllByUserIdIsNot(userId, page)
+        return itemRequests
                 .stream()
                 .map(itemRequest -> {
                     ItemRequestDto itemRequestDto = ItemRequestMapper.toItemRequestDto(itemRequest);
@@ -81,6 +81,7 @@ public class ItemRequestService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public ItemRequestDto getRequestById(int userId, int requestId) {
         userService.getUserById(userId);
         List<ItemDto> itemDtos = itemRepository.findAllByRequestId(requestId)
@@ -96,4 +97,17 @@ public class ItemRequestService {
         return itemRequestDto;
     }
 
+    private Map<Integer, List<ItemDto>> findItemsByRequest(List<ItemRequest> itemRequests) {
+        if (itemRequests.isEmpty()) {
+            return Map.of();
+        }
+        List<Integer> requestIds = itemRequests.stream()
+                .map(ItemRequest::getId)
+                .collect(Collectors.toList());
+
+        return itemRepository.findAllByRequestIdIn(requestIds)
+                .stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.groupingBy(ItemDto::getRequestId));
+    }
 }
@@ -0,0 +1,51 @@
+package ru.practicum.shareit.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import ru.practicum.shareit.item.exception.BadRequestException;
+
+/**
+ * Resolves {@link SharerUser} parameters through {@link UserCache}, once per request.
+ */
+@RequiredArgsConstructor
+public class SharerUserArgumentResolver implements HandlerMethodArgumentResolver {
+    public static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    private static final String USER_ATTRIBUTE = SharerUserArgumentResolver.class.getName() + ".user";
+
+    private final UserCache userCache;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(SharerUser.class) && User.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public User resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        Object resolved = webRequest.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved != null) {
+            return (User) resolved;
+        }
+        String header = webRequest.getHeader(USER_ID_HEADER);
+        if (header == null) {
+            throw new MissingRequestHeaderException(USER_ID_HEADER, parameter);
+        }
+        int userId;
+        try {
+            userId = Integer.parseInt(header.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(String.format("incorrect user id %s", header));
+        }
+        User user = userCache.get(userId);
+        webRequest.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+
+        return user;
+    }
+}
@@ -1,6 +1,10 @@
 package ru.practicum.shareit.user;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
@@ -22,6 +26,9 @@ import javax.validation.constraints.Size;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 public class User {
     @Id
     @Column(name = "user_id")
@@ -35,6 +42,7 @@ public class User {
 
     @NotNull
     @Email
+    @NaturalId(mutable = true)
     @Column(unique = true, nullable = false, length = 50)
     private String email;
 }
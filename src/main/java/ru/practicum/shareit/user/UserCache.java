@@ -0,0 +1,182 @@
+package ru.practicum.shareit.user;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.ReplicaRoutingDataSource;
+import ru.practicum.shareit.item.exception.NotFoundException;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache of users by id, bounded in size (least recently used first out) and in age.
+ * {@link UserService} invalidates an entry when the user changes or is deleted; the age bound
+ * limits how long a change made by another instance stays invisible. Cached users are shared, do not modify them.
+ * Users are loaded in a read-write transaction, so from the primary. A user loaded inside a caller's read-only
+ * transaction comes from a replica that may not have seen the latest change yet, so it is not cached.
+ * Lookups, evictions and expirations are exported as {@code cache.*} meters tagged {@code cache=user}.
+ */
+@Component
+@ManagedResource(objectName = "ru.practicum.shareit:type=UserCache")
+public class UserCache {
+    private static final int MAX_SIZE = 10_000;
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final UserRepository userRepository;
+    private final TransactionOperations transactionOperations;
+    private final boolean replicated;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Integer, Entry> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @Autowired
+    public UserCache(UserRepository userRepository, TransactionTemplate transactionTemplate,
+                     MeterRegistry meterRegistry, @Value("${shareit.datasource.replica.url:}") String replicaUrl) {
+        this(userRepository, transactionTemplate, !replicaUrl.isEmpty(), MAX_SIZE, TTL, System::nanoTime);
+        registerMeters(meterRegistry);
+    }
+
+    UserCache(UserRepository userRepository, TransactionOperations transactionOperations, boolean replicated,
+              int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.userRepository = userRepository;
+        this.transactionOperations = transactionOperations;
+        this.replicated = replicated;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public User get(int id) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (nanoClock.getAsLong() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.user;
+                }
+                entries.remove(id);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        long seenInvalidations = invalidations.get();
+        boolean fromReplica = replicated
+                && ReplicaRoutingDataSource.currentRoute() == ReplicaRoutingDataSource.Route.REPLICA;
+        User user = transactionOperations.execute(status -> userRepository.findById(id))
+                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", id)));
+        synchronized (entries) {
+            // a user changed while we were loading might be the one we hold, so skip caching it
+            if (!fromReplica && invalidations.get() == seenInvalidations) {
+                entries.put(id, new Entry(user, nanoClock.getAsLong()));
+            }
+        }
+        return user;
+    }
+
+    public void invalidate(int id) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+
+    // registered here rather than as a MeterBinder: binders are applied while the registry is created, and loading
+    // users needs the repository, whose entity manager already needs the registry
+    void registerMeters(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, UserCache::getHits)
+                .tag("cache", "user")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, UserCache::getMisses)
+                .tag("cache", "user")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("cache.hit.ratio", this, UserCache::getHitRatio)
+                .description("Share of lookups answered from the cache")
+                .tag("cache", "user")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, UserCache::getEvictions)
+                .tag("cache", "user")
+                .register(registry);
+        FunctionCounter.builder("cache.expirations", this, UserCache::getExpirations)
+                .description("Entries dropped for being older than the time to live")
+                .tag("cache", "user")
+                .register(registry);
+        Gauge.builder("cache.size", this, UserCache::getSize)
+                .tag("cache", "user")
+                .register(registry);
+    }
+
+    @ManagedAttribute(description = "Lookups answered from the cache")
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute(description = "Lookups loaded from the database")
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @ManagedAttribute(description = "Share of lookups answered from the cache")
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @ManagedAttribute(description = "Entries dropped to stay within the size bound")
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @ManagedAttribute(description = "Entries dropped for being older than the time to live")
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    @ManagedAttribute(description = "Users currently cached")
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+        private final User user;
+        private final long loadedAt;
+
+        private Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -2,30 +2,45 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.exception.ConflictException;
 import ru.practicum.shareit.item.exception.NotFoundException;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 
+import static ru.practicum.shareit.utils.AfterTransaction.afterCommit;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ItemSearchCache itemSearchCache;
+    private final BookingIntervalIndex bookingIntervalIndex;
 
+    @Transactional
     public User create(User user) {
         return userRepository.save(user);
     }
 
     public User getUserById(int userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format("user id N%s", userId)));
+        return userCache.get(userId);
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAll() {
         return userRepository.findAll();
     }
 
+    @Transactional
     public User change(int id, User user) {
         User userInDb = userRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException(String.format("user id N%s", id)));
@@ -38,17 +53,31 @@ public class UserService {
             userInDb.setEmail(user.getEmail());
         }
 
-        return userRepository.save(userInDb);
+        User savedUser = userRepository.save(userInDb);
+        afterCommit(() -> userCache.invalidate(id));
+
+        return savedUser;
     }
 
+    @Transactional
     public void delete(int id) {
         userRepository.deleteById(id);
+        afterCommit(() -> {
+            userCache.invalidate(id);
+            // the database cascades to the items and requests of the user, and to items answering those requests
+            Cache cache = entityManagerFactory.getCache();
+            cache.evict(User.class, id);
+            cache.evict(Item.class);
+            cache.evict(ItemRequest.class);
+            bookingIntervalIndex.evictAll();
+        });
+        itemSearchCache.invalidateAll();
     }
 
     private void throwIfEmailExist(String email) {
         userRepository.findByEmail(email)
                 .ifPresent(p -> {
-                    throw new ConflictException(String.format("email %s", p.getEmail()));
+                    throw new ConflictException(String.format("incorrect email %s", p.getEmail()));
                 });
     }
 }
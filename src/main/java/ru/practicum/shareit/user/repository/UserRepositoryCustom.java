@@ -0,0 +1,12 @@
+package ru.practicum.shareit.user.repository;
+
+import ru.practicum.shareit.user.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    /**
+     * Looks the user up by its natural id, answered from the second-level cache once the email was seen.
+     */
+    Optional<User> findByEmail(String email);
+}
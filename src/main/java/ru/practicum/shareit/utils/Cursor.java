@@ -0,0 +1,58 @@
+package ru.practicum.shareit.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ru.practicum.shareit.item.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page: the sort key ({@code start}, absent for items) and the row id.
+ * Travels to the client as an opaque url-safe token.
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+public class Cursor {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime start;
+    private final int id;
+
+    public static Cursor of(int id) {
+        return new Cursor(null, id);
+    }
+
+    public static Cursor of(LocalDateTime start, int id) {
+        return new Cursor(start, id);
+    }
+
+    /**
+     * Returns {@code null} for an empty token, which means the first page.
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                return of(Integer.parseInt(value));
+            }
+            return of(LocalDateTime.parse(value.substring(0, separator)),
+                    Integer.parseInt(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("incorrect cursor");
+        }
+    }
+
+    public String encode() {
+        String value = start == null ? String.valueOf(id) : start + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,193 @@
+package ru.practicum.shareit.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes writes touching the same item. Locks are created per item id on demand and dropped when
+ * nobody holds or waits for them, so different items never share a lock.
+ * Every acquisition is timed in the {@code shareit.item.lock.wait} histogram. Contended waits are summed per item
+ * for at most {@value #MAX_TRACKED_ITEMS} items, a newly contended item taking the place of the coolest one, and
+ * halved every {@code shareit.item-lock.hot-decay}, so the hottest items of late show up in the
+ * {@code shareit.item.lock.hot.*} gauges.
+ */
+@Component
+@ManagedResource(objectName = "ru.practicum.shareit:type=ItemLockManager")
+public class ItemLockManager {
+    private static final int MAX_TRACKED_ITEMS = 1024;
+    private static final int HOT_ITEMS = 10;
+    private static final long FORGOTTEN_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private final Map<Integer, ItemLock> locks = new ConcurrentHashMap<>();
+    private final Timer waitTimer;
+    private final Map<Integer, Long> contendedWaitNanosByItem = new HashMap<>();
+
+    public ItemLockManager(MeterRegistry meterRegistry) {
+        this.waitTimer = Timer.builder("shareit.item.lock.wait")
+                .description("Time spent waiting for an item lock")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+        for (int rank = 1; rank <= HOT_ITEMS; rank++) {
+            int index = rank - 1;
+            Gauge.builder("shareit.item.lock.hot.item", this, manager -> manager.hotItem(index, true))
+                    .description("Id of the item with the longest recent contended lock wait of this rank")
+                    .tag("rank", String.valueOf(rank))
+                    .register(meterRegistry);
+            Gauge.builder("shareit.item.lock.hot.wait", this, manager -> manager.hotItem(index, false))
+                    .description("Recent contended lock wait of the item of this rank, decaying")
+                    .tag("rank", String.valueOf(rank))
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> T withLock(int itemId, Supplier<T> action) {
+        ItemLock lock = acquire(itemId);
+        try {
+            return action.get();
+        } finally {
+            release(itemId, lock);
+        }
+    }
+
+    /**
+     * Locks several items in ascending id order, so concurrent callers cannot deadlock.
+     */
+    public <T> T withLocks(Collection<Integer> itemIds, Supplier<T> action) {
+        Integer[] sorted = itemIds.stream().distinct().sorted().toArray(Integer[]::new);
+        ItemLock[] acquired = new ItemLock[sorted.length];
+        int count = 0;
+        try {
+            for (; count < sorted.length; count++) {
+                acquired[count] = acquire(sorted[count]);
+            }
+            return action.get();
+        } finally {
+            for (int i = count - 1; i >= 0; i--) {
+                release(sorted[i], acquired[i]);
+            }
+        }
+    }
+
+    @ManagedAttribute(description = "Items with the longest recent contended wait, item id to ms")
+    public Map<Integer, Long> getHotItems() {
+        Map<Integer, Long> hotItems = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : hottest()) {
+            hotItems.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+        }
+        return hotItems;
+    }
+
+    /**
+     * Halves the contended wait of every tracked item and forgets items left with next to none, so an item
+     * contended long ago gives way to those contended now.
+     */
+    @Scheduled(initialDelayString = "${shareit.item-lock.hot-decay:PT1M}",
+            fixedDelayString = "${shareit.item-lock.hot-decay:PT1M}")
+    public void decayHotItems() {
+        synchronized (contendedWaitNanosByItem) {
+            Iterator<Map.Entry<Integer, Long>> iterator = contendedWaitNanosByItem.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, Long> entry = iterator.next();
+                long halved = entry.getValue() / 2;
+                if (halved < FORGOTTEN_WAIT_NANOS) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(halved);
+                }
+            }
+        }
+    }
+
+    int heldLocks() {
+        return locks.size();
+    }
+
+    private ItemLock acquire(int itemId) {
+        ItemLock lock = locks.compute(itemId, (id, current) -> {
+            ItemLock itemLock = current == null ? new ItemLock() : current;
+            itemLock.users++;
+            return itemLock;
+        });
+        if (lock.lock.tryLock()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return lock;
+        }
+        long started = System.nanoTime();
+        lock.lock.lock();
+        long waitNanos = System.nanoTime() - started;
+        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        recordContended(itemId, waitNanos);
+        return lock;
+    }
+
+    private void release(int itemId, ItemLock lock) {
+        lock.lock.unlock();
+        locks.computeIfPresent(itemId, (id, current) -> --current.users == 0 ? null : current);
+    }
+
+    /**
+     * Space-saving top list: once full, the item takes the place of the coolest one and starts from its wait,
+     * which overestimates a newcomer but never lets a hot item go missing.
+     */
+    void recordContended(int itemId, long waitNanos) {
+        synchronized (contendedWaitNanosByItem) {
+            Long itemWait = contendedWaitNanosByItem.get(itemId);
+            if (itemWait == null && contendedWaitNanosByItem.size() >= MAX_TRACKED_ITEMS) {
+                Map.Entry<Integer, Long> coolest = null;
+                for (Map.Entry<Integer, Long> entry : contendedWaitNanosByItem.entrySet()) {
+                    if (coolest == null || entry.getValue() < coolest.getValue()) {
+                        coolest = entry;
+                    }
+                }
+                itemWait = coolest.getValue();
+                contendedWaitNanosByItem.remove(coolest.getKey());
+            }
+            contendedWaitNanosByItem.put(itemId, (itemWait == null ? 0 : itemWait) + waitNanos);
+        }
+    }
+
+    private List<Map.Entry<Integer, Long>> hottest() {
+        List<Map.Entry<Integer, Long>> entries;
+        synchronized (contendedWaitNanosByItem) {
+            entries = new ArrayList<>(contendedWaitNanosByItem.entrySet().size());
+            contendedWaitNanosByItem.forEach((itemId, waitNanos) -> entries.add(Map.entry(itemId, waitNanos)));
+        }
+        entries.sort((first, second) -> Long.compare(second.getValue(), first.getValue()));
+        return entries.subList(0, Math.min(HOT_ITEMS, entries.size()));
+    }
+
+    private double hotItem(int index, boolean id) {
+        List<Map.Entry<Integer, Long>> hottest = hottest();
+        if (index >= hottest.size()) {
+            return Double.NaN;
+        }
+        Map.Entry<Integer, Long> entry = hottest.get(index);
+        return id ? entry.getKey() : entry.getValue() / 1e9;
+    }
+
+    private static final class ItemLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int users;
+    }
+}
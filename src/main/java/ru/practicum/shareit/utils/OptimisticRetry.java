@@ -0,0 +1,28 @@
+package ru.practicum.shareit.utils;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a read-modify-write whose save lost a version check to a concurrent writer.
+ * The action must re-read the entity on every attempt. Inside a transaction the failure has already
+ * marked it for rollback, so the action runs once and the conflict is left to the caller.
+ */
+public class OptimisticRetry {
+    public static final int MAX_ATTEMPTS = 3;
+
+    public static <T> T retryOnConflict(Supplier<T> action) {
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : MAX_ATTEMPTS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -2,9 +2,15 @@ package ru.practicum.shareit.utils;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import ru.practicum.shareit.item.exception.BadRequestException;
 
+import java.util.List;
+import java.util.function.Function;
+
 public class Pagination {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     public static Pageable getPageOrThrow(Integer from, Integer size) {
         if (size == null || from == null) {
             return Pageable.unpaged();
@@ -15,4 +21,22 @@ public class Pagination {
         from = from / size;
         return PageRequest.of(from, size);
     }
+
+    public static int getSizeOrThrow(Integer size) {
+        if (size == null || size <= 0) {
+            throw new BadRequestException("incorrect page parameters");
+        }
+        return size;
+    }
+
+    /**
+     * Wraps a keyset page, adding the cursor of its last row when the page is full and more rows may follow.
+     */
+    public static <T> ResponseEntity<List<T>> withNextCursor(List<T> page, int size, Function<T, Cursor> cursorOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() == size) {
+            response.header(NEXT_CURSOR_HEADER, cursorOf.apply(page.get(page.size() - 1)).encode());
+        }
+        return response.body(page);
+    }
 }
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes a listing to the response row by row while it is read, so it takes the same memory whatever its length.
+ * Rows go out as a JSON array, or as one JSON document per line when the client accepts {@code application/x-ndjson}.
+ * Nothing is written before the first row, so a listing failing early still gets an error response.
+ */
+public class RowStreaming<T> implements Consumer<T> {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final HttpServletResponse response;
+    private final ObjectWriter writer;
+    private final boolean ndjson;
+    private JsonGenerator generator;
+    private long rows;
+
+    private RowStreaming(HttpServletResponse response, ObjectMapper objectMapper, boolean ndjson) {
+        this.response = response;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.ndjson = ndjson;
+    }
+
+    /**
+     * Writes every row {@code listing} hands to its consumer. Returns {@code null}: the response is written already.
+     */
+    public static <T> ResponseEntity<List<T>> writeAll(HttpServletRequest request, HttpServletResponse response,
+                                                       ObjectMapper objectMapper, Consumer<Consumer<T>> listing) {
+        RowStreaming<T> streaming = new RowStreaming<>(response, objectMapper, acceptsNdjson(request));
+        listing.accept(streaming);
+        streaming.finish();
+        return null;
+    }
+
+    @Override
+    public void accept(T row) {
+        try {
+            if (generator == null) {
+                start();
+            }
+            writer.writeValue(generator, row);
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void start() throws IOException {
+        response.setContentType((ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON).toString());
+        response.setCharacterEncoding("UTF-8");
+        generator = writer.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        if (ndjson) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+        } else {
+            generator.writeStartArray();
+        }
+    }
+
+    private void finish() {
+        try {
+            if (generator == null) {
+                start();
+            }
+            if (ndjson) {
+                if (rows > 0) {
+                    generator.writeRaw('\n');
+                }
+            } else {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean acceptsNdjson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(APPLICATION_NDJSON));
+    }
+}
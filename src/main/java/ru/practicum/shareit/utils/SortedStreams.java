@@ -0,0 +1,62 @@
+package ru.practicum.shareit.utils;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merges streams already sorted by the same order into one sorted stream, reading each only as far as the merge
+ * has got, so two database cursors can be combined without loading either of them.
+ */
+public class SortedStreams {
+    /**
+     * The elements of both streams in {@code order}, the first stream winning ties. Elements must not be
+     * {@code null}. Closing the result closes both.
+     */
+    public static <T> Stream<T> merge(Stream<T> first, Stream<T> second, Comparator<? super T> order) {
+        Iterator<T> merged = new Iterator<>() {
+            private final Iterator<T> left = first.iterator();
+            private final Iterator<T> right = second.iterator();
+            private T nextLeft = advance(left);
+            private T nextRight = advance(right);
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T next;
+                if (nextRight == null || nextLeft != null && order.compare(nextLeft, nextRight) <= 0) {
+                    next = nextLeft;
+                    nextLeft = advance(left);
+                } else {
+                    next = nextRight;
+                    nextRight = advance(right);
+                }
+                return next;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        first.close();
+                    } finally {
+                        second.close();
+                    }
+                });
+    }
+
+    private static <T> T advance(Iterator<T> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
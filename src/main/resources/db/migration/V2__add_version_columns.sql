@@ -0,0 +1,3 @@
+ALTER TABLE ITEMS ADD COLUMN IF NOT EXISTS VERSION INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE BOOKINGS ADD COLUMN IF NOT EXISTS VERSION INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- booker listings: booker_id filter, start_time ordering, optional status filter
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_START ON BOOKINGS (BOOKER_ID, START_TIME);
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_BOOKER_STATUS_START ON BOOKINGS (BOOKER_ID, STATUS, START_TIME);
+
+-- owner listings join items by owner, then bookings by item; item detail, last/next bookings
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ITEM_START ON BOOKINGS (ITEM_ID, START_TIME);
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ITEM_STATUS_END ON BOOKINGS (ITEM_ID, STATUS, END_TIME);
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ITEM_BOOKER_END ON BOOKINGS (ITEM_ID, BOOKER_ID, END_TIME);
+
+CREATE INDEX IF NOT EXISTS IDX_ITEMS_OWNER ON ITEMS (OWNER_ID, ITEM_ID);
+CREATE INDEX IF NOT EXISTS IDX_ITEMS_REQUEST ON ITEMS (REQUEST_ID);
+
+CREATE INDEX IF NOT EXISTS IDX_COMMENTS_ITEM_CREATED ON COMMENTS (ITEM_ID, CREATED);
+
+CREATE INDEX IF NOT EXISTS IDX_ITEM_REQUEST_USER_CREATED ON ITEM_REQUEST (USER_ID, CREATED);
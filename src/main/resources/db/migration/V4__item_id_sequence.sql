@@ -0,0 +1,7 @@
+-- item ids come from a sequence handing out blocks of 50, so inserts of new items can be batched;
+-- rows inserted without an id take the next block start, which no block handed out before or after contains
+CREATE SEQUENCE IF NOT EXISTS ITEMS_SEQ START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE ITEMS_SEQ RESTART WITH (SELECT COALESCE(MAX(ITEM_ID), 0) + 1 FROM ITEMS);
+
+ALTER TABLE ITEMS ALTER COLUMN ITEM_ID DROP IDENTITY;
+ALTER TABLE ITEMS ALTER COLUMN ITEM_ID SET DEFAULT NEXT VALUE FOR ITEMS_SEQ;
@@ -0,0 +1,2 @@
+-- expiry of WAITING bookings: status filter, start_time range and ordering
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_STATUS_START ON BOOKINGS (STATUS, START_TIME);
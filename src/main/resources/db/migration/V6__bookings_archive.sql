@@ -0,0 +1,22 @@
+-- bookings that ended long ago, moved out of BOOKINGS by the archiver with their ids kept
+CREATE TABLE IF NOT EXISTS BOOKINGS_ARCHIVE
+(
+    BOOKING_ID INTEGER        PRIMARY KEY,
+    START_TIME TIMESTAMP      NOT NULL,
+    END_TIME   TIMESTAMP      NOT NULL,
+    ITEM_ID    INTEGER        NOT NULL,
+    BOOKER_ID  INTEGER        NOT NULL,
+    STATUS     BOOKING_STATUS NOT NULL,
+    VERSION    INTEGER        NOT NULL DEFAULT 0,
+    FOREIGN KEY (ITEM_ID) REFERENCES ITEMS (ITEM_ID) ON DELETE CASCADE,
+    FOREIGN KEY (BOOKER_ID) REFERENCES USERS (USER_ID) ON DELETE CASCADE
+);
+
+-- archived booker and owner listings, last booking of an item, comment eligibility
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ARCHIVE_BOOKER_START ON BOOKINGS_ARCHIVE (BOOKER_ID, START_TIME);
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ARCHIVE_BOOKER_STATUS_START ON BOOKINGS_ARCHIVE (BOOKER_ID, STATUS, START_TIME);
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ARCHIVE_ITEM_START ON BOOKINGS_ARCHIVE (ITEM_ID, START_TIME);
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_ARCHIVE_ITEM_BOOKER_END ON BOOKINGS_ARCHIVE (ITEM_ID, BOOKER_ID, END_TIME);
+
+-- archiver: bookings by end_time
+CREATE INDEX IF NOT EXISTS IDX_BOOKINGS_END ON BOOKINGS (END_TIME);
@@ -0,0 +1,105 @@
+package ru.practicum.shareit;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DatasetGeneratorTest {
+    private static final String URL = "jdbc:h2:mem:dataset-test;DB_CLOSE_DELAY=-1";
+
+    private final DatasetGenerator generator = DatasetGenerator.builder()
+            .users(50)
+            .items(500)
+            .requests(40)
+            .bookings(5_000)
+            .comments(300)
+            .batchSize(1_000)
+            .build();
+
+    private Connection connection;
+
+    @BeforeEach
+    void migrate() throws SQLException {
+        Flyway.configure().dataSource(URL, "sa", "").load().migrate();
+        connection = DriverManager.getConnection(URL, "sa", "");
+    }
+
+    @AfterEach
+    void drop() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    void shouldInsertRequestedRowCounts() throws SQLException {
+        generator.generate(connection);
+
+        assertThat(count("SELECT COUNT(*) FROM users")).isEqualTo(50);
+        assertThat(count("SELECT COUNT(*) FROM items")).isEqualTo(500);
+        assertThat(count("SELECT COUNT(*) FROM item_request")).isEqualTo(40);
+        assertThat(count("SELECT COUNT(*) FROM bookings")).isEqualTo(5_000);
+        assertThat(count("SELECT COUNT(*) FROM comments")).isEqualTo(300);
+    }
+
+    @Test
+    void shouldSkewOwnersAndBookedItemsTowardsLowestIds() throws SQLException {
+        generator.generate(connection);
+
+        assertThat(count("SELECT owner_id FROM items GROUP BY owner_id ORDER BY COUNT(*) DESC, owner_id LIMIT 1"))
+                .isEqualTo(1);
+        assertThat(count("SELECT item_id FROM bookings GROUP BY item_id ORDER BY COUNT(*) DESC, item_id LIMIT 1"))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotLetOwnersBookTheirOwnItems() throws SQLException {
+        generator.generate(connection);
+
+        assertThat(count("SELECT COUNT(*) FROM bookings b JOIN items i ON i.item_id = b.item_id " +
+                "WHERE b.booker_id = i.owner_id")).isZero();
+    }
+
+    @Test
+    void shouldAppendAfterExistingRowsAndKeepIdentitiesUsable() throws SQLException {
+        generator.generate(connection);
+        generator.generate(connection);
+
+        assertThat(count("SELECT COUNT(*) FROM users")).isEqualTo(100);
+        assertThat(count("SELECT COUNT(*) FROM bookings")).isEqualTo(10_000);
+        execute("INSERT INTO users (name, email) VALUES ('late', 'late@example.org')");
+        assertThat(count("SELECT MAX(user_id) FROM users")).isEqualTo(101);
+        execute("INSERT INTO items (name, description, available, owner_id) VALUES ('late', 'late', TRUE, 101)");
+        assertThat(count("SELECT MAX(item_id) FROM items")).isEqualTo(1001);
+    }
+
+    @Test
+    void shouldRejectBookingsWithoutItems() {
+        DatasetGenerator withoutItems = DatasetGenerator.builder().items(0).build();
+
+        assertThrows(IllegalArgumentException.class, () -> withoutItems.generate(connection));
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingController;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.ItemController;
+import ru.practicum.shareit.item.comment.Comment;
+import ru.practicum.shareit.item.exception.ErrorHandler;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.ItemRequestController;
+import ru.practicum.shareit.user.SharerUserArgumentResolver;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements every endpoint executes, so a lazy association that starts
+ * being loaded row by row shows up as a failing count. Sharer users are served from a warm
+ * {@link UserCache}, and the search index is warm, so neither is counted.
+ */
+@Transactional
+@SpringBootTest(
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class EndpointStatementCountTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    private final ItemController itemController;
+    private final BookingController bookingController;
+    private final ItemRequestController itemRequestController;
+    private final UserCache userCache;
+    private final EntityManager entityManager;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private User owner;
+    private User booker;
+    private User requester;
+    private ItemRequest request;
+    private Item item;
+    private Booking pastBooking;
+    private Booking futureBooking;
+
+    @BeforeEach
+    void seed() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(itemController, bookingController, itemRequestController)
+                .setControllerAdvice(ErrorHandler.class)
+                .setCustomArgumentResolvers(new SharerUserArgumentResolver(userCache))
+                .build();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        LocalDateTime now = LocalDateTime.now();
+        owner = persist(new User(null, "owner", "owner@email.org"));
+        booker = persist(new User(null, "booker", "booker@email.org"));
+        requester = persist(new User(null, "requester", "requester@email.org"));
+        request = persist(new ItemRequest(null, now, "need a drill", requester));
+        item = persist(new Item(null, "drill", "about drill", true, request, owner, null));
+        persist(new Item(null, "saw", "about saw", true, null, owner, null));
+        pastBooking = persist(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker,
+                BookingStatus.APPROVED, null));
+        futureBooking = persist(new Booking(null, now.plusDays(2), now.plusDays(3), item, booker,
+                BookingStatus.WAITING, null));
+        persist(new Comment(null, "good drill", item, booker, now.minusDays(1)));
+        entityManager.flush();
+        entityManager.clear();
+        userCache.get(owner.getId());
+        userCache.get(booker.getId());
+        userCache.get(requester.getId());
+    }
+
+    @Test
+    void itemEndpoints() throws Exception {
+        assertThat(countStatements(get("/items/" + item.getId()).header(USER_ID_HEADER, owner.getId())))
+                .as("item for its owner: item, bookings, comments").isEqualTo(3);
+        assertThat(countStatements(get("/items/" + item.getId()).header(USER_ID_HEADER, booker.getId())))
+                .as("item for another user: item, comments").isEqualTo(2);
+        assertThat(countStatements(get("/items").header(USER_ID_HEADER, owner.getId())))
+                .as("owner items: items, last bookings, next bookings, comments").isEqualTo(4);
+        assertThat(countStatements(get("/items/search").param("text", "drill").header(USER_ID_HEADER, booker.getId())))
+                .as("search from the index").isEqualTo(0);
+        assertThat(countStatements(post("/items/" + item.getId() + "/comment")
+                .header(USER_ID_HEADER, booker.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"text\": \"still good\"}")))
+                .as("comment: item, past bookings, insert").isEqualTo(3);
+    }
+
+    @Test
+    void bookingEndpoints() throws Exception {
+        assertThat(countStatements(get("/bookings").header(USER_ID_HEADER, booker.getId())))
+                .as("booker listing: bookings, archived bookings").isEqualTo(2);
+        assertThat(countStatements(get("/bookings/owner").param("state", "WAITING").header(USER_ID_HEADER, owner.getId())))
+                .as("owner listing").isEqualTo(1);
+        assertThat(countStatements(get("/bookings/" + pastBooking.getId()).header(USER_ID_HEADER, booker.getId())))
+                .as("booking").isEqualTo(1);
+        assertThat(countStatements(patch("/bookings/" + futureBooking.getId()).param("approved", "false")
+                .header(USER_ID_HEADER, owner.getId())))
+                .as("approval: booking, update").isEqualTo(2);
+    }
+
+    @Test
+    void bookingBatchEndpoint() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> ids = new ArrayList<>();
+        for (int day = 4; day < 14; day++) {
+            ids.add(persist(new Booking(null, now.plusDays(day), now.plusDays(day).plusHours(1), item, booker,
+                    BookingStatus.WAITING, null)).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(countStatements(patch("/bookings/batch").param("approved", "true")
+                .header(USER_ID_HEADER, owner.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ids.toString())))
+                .as("batch approval: bookings with items, update").isEqualTo(2);
+    }
+
+    @Test
+    void requestEndpoints() throws Exception {
+        assertThat(countStatements(get("/requests").header(USER_ID_HEADER, requester.getId())))
+                .as("own requests: requests, items").isEqualTo(2);
+        assertThat(countStatements(get("/requests/all").param("from", "0").param("size", "10")
+                .header(USER_ID_HEADER, owner.getId())))
+                .as("other requests: requests, items").isEqualTo(2);
+        assertThat(countStatements(get("/requests/" + request.getId()).header(USER_ID_HEADER, owner.getId())))
+                .as("request: items, request").isEqualTo(2);
+    }
+
+    private long countStatements(RequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        entityManager.flush();
+        long count = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        return count;
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.UserCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:item-batch-import")
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ItemBatchImportTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    private static final int ROWS = 2 * Item.ID_BLOCK + 20;
+
+    private final MockMvc mockMvc;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final UserCache userCache;
+
+    private int ownerId;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('owner', 'owner@email.org')");
+        ownerId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE name = 'owner'", Integer.class);
+        userCache.get(ownerId);
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM users");
+        userCache.invalidate(ownerId);
+    }
+
+    @Test
+    void shouldInsertBatchInOneStatementPerIdBlockAndReportEveryRow() throws Exception {
+        List<ItemDto> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(ItemDto.builder().name("drill " + i).description("a drill").available(true).build());
+        }
+        rows.set(7, ItemDto.builder().name("drill 7").available(true).build());
+
+        JsonNode results;
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            results = postBatch(rows);
+
+            assertThat(scope.count()).as("an id block and an insert batch per %s rows", Item.ID_BLOCK)
+                    .isEqualTo(2 * 3);
+        }
+        assertThat(results.size()).isEqualTo(ROWS);
+        assertThat(results.get(7).get("error").asText()).startsWith("description ");
+        assertThat(results.get(8).get("item").get("name").asText()).isEqualTo("drill 8");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE owner_id = ?", Integer.class,
+                ownerId)).isEqualTo(ROWS - 1);
+    }
+
+    @Test
+    void shouldKeepIdsUniqueAlongsideInsertsWithoutId() throws Exception {
+        postBatch(List.of(ItemDto.builder().name("saw").description("a saw").available(true).build()));
+        jdbcTemplate.update("INSERT INTO items (name, description, available, owner_id) " +
+                "VALUES ('ladder', 'a ladder', TRUE, ?)", ownerId);
+        JsonNode results = postBatch(List.of(ItemDto.builder().name("tent").description("a tent").available(true)
+                .build()));
+
+        assertThat(results.get(0).get("item").get("id").isInt()).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT item_id) FROM items", Integer.class))
+                .isEqualTo(3);
+    }
+
+    private JsonNode postBatch(List<ItemDto> rows) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(post("/items/batch")
+                        .header(USER_ID_HEADER, ownerId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(rows)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class MetricsIntegrationTest {
+    private final MockMvc mockMvc;
+
+    @Test
+    void shouldExposeEndpointRepositoryPoolAndHibernateMetrics() throws Exception {
+        mockMvc.perform(get("/users")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\"," +
+                        "status=\"200\",uri=\"/users\",quantile=\"0.99\",}")
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"findAll\"," +
+                        "repository=\"UserRepository\",state=\"SUCCESS\",}")
+                .contains("shareit_repository_rows_count{method=\"findAll\",repository=\"UserRepository\",}")
+                .contains("hikaricp_connections_active{")
+                .contains("hibernate_statements_total{")
+                .contains("shareit_item_lock_wait_seconds_bucket{")
+                .contains("cache_gets_total{cache=\"user\",result=\"hit\",}")
+                .contains("cache_expirations_total{cache=\"user\",}")
+                .contains("shareit_item_lock_hot_wait_seconds{rank=\"1\",}");
+    }
+
+    @Test
+    void shouldCountRowsOfCollectionsPagesAndOptionals() {
+        assertEquals(0, RepositoryMetrics.countRows(null));
+        assertEquals(2, RepositoryMetrics.countRows(List.of(1, 2)));
+        assertEquals(1, RepositoryMetrics.countRows(new SliceImpl<>(List.of(1))));
+        assertEquals(0, RepositoryMetrics.countRows(Optional.empty()));
+        assertEquals(1, RepositoryMetrics.countRows(new Object()));
+    }
+}
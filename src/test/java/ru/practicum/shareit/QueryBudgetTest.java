@@ -0,0 +1,113 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Transactional
+@SpringBootTest(properties = {
+        "shareit.query-budget=2",
+        "spring.datasource.url=jdbc:h2:mem:query-budget"})
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class QueryBudgetTest {
+    private final MockMvc mockMvc;
+    private final MeterRegistry meterRegistry;
+    private final ItemService itemService;
+    private final EntityManager entityManager;
+    private final UserCache userCache;
+
+    private User owner;
+    private User booker;
+    private Item item;
+
+    @BeforeEach
+    void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        owner = persist(new User(null, "owner", "owner@email.org"));
+        booker = persist(new User(null, "booker", "booker@email.org"));
+        item = persist(new Item(null, "drill", "about drill", true, null, owner, null));
+        persist(new Booking(null, now.minusDays(2), now.minusDays(1), item, booker, BookingStatus.APPROVED, null));
+        entityManager.flush();
+        entityManager.clear();
+        userCache.get(owner.getId());
+        userCache.get(booker.getId());
+    }
+
+    @Test
+    void shouldCountStatementsPerRepositoryMethod() {
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            itemService.getItemById(owner.getId(), item.getId());
+
+            assertThat(scope.count()).isEqualTo(3);
+            assertThat(scope.statementsByMethod()).containsExactly(
+                    entry("ItemRepository.findById"),
+                    entry("BookingRepository.findAllByItemIdOrderByStart"),
+                    entry("CommentRepository.findAllByItemIdOrderByCreatedDesc"));
+        }
+    }
+
+    @Test
+    void shouldAddInnerScopesToTheOuterOne() {
+        try (QueryCounter.Scope outer = QueryCounter.open()) {
+            try (QueryCounter.Scope inner = QueryCounter.open()) {
+                itemService.getItemById(booker.getId(), item.getId());
+
+                assertThat(inner.count()).isEqualTo(2);
+            }
+            entityManager.clear();
+            itemService.getItemById(booker.getId(), item.getId());
+
+            assertThat(outer.count()).isEqualTo(4);
+            assertThat(outer.statementsByMethod()).containsEntry("ItemRepository.findById", 2);
+        }
+    }
+
+    @Test
+    void shouldCountRequestsOverTheBudget() throws Exception {
+        double exceeded = exceededCount();
+
+        mockMvc.perform(get("/items/" + item.getId()).header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk());
+
+        assertThat(exceededCount()).isEqualTo(exceeded + 1);
+        assertThat(meterRegistry.get("shareit.http.statements").tag("uri", "/items/{id}").summary().max())
+                .isGreaterThanOrEqualTo(3);
+    }
+
+    private double exceededCount() {
+        return meterRegistry.find("shareit.query.budget.exceeded").tag("uri", "/items/{id}").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private static Map.Entry<String, Integer> entry(String method) {
+        return Map.entry(method, 1);
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+}
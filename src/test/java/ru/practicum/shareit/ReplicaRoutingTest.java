@@ -0,0 +1,123 @@
+package ru.practicum.shareit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.user.UserService;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:primary-routing",
+                "shareit.datasource.replica.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+                "shareit.datasource.replica.username=test",
+                "shareit.datasource.replica.password=test"},
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class ReplicaRoutingTest {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void seed() {
+        Flyway.configure().dataSource(replicaDataSource).load().migrate();
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.update("INSERT INTO users (name, email) VALUES ('primary', 'primary@email.org')");
+        replica.update("INSERT INTO users (name, email) VALUES ('replica', 'replica@email.org')");
+    }
+
+    @AfterEach
+    void clean() {
+        primary.update("DELETE FROM users");
+        replica.update("DELETE FROM users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void shouldReadFromReplicaInReadOnlyTransactions() {
+        assertThat(userService.getAll()).extracting(User::getName).containsExactly("replica");
+    }
+
+    @Test
+    void shouldWriteToPrimary() {
+        userService.create(new User(null, "created", "created@email.org"));
+
+        assertThat(primary.queryForList("SELECT name FROM users ORDER BY user_id", String.class))
+                .containsExactly("primary", "created");
+        assertThat(replica.queryForList("SELECT name FROM users", String.class)).containsExactly("replica");
+    }
+
+    @Test
+    void shouldReadPrimaryWhenChangingItem() {
+        primary.update("INSERT INTO users (user_id, name, email) VALUES (1000, 'owner', 'owner@email.org')");
+        replica.update("INSERT INTO users (user_id, name, email) VALUES (1000, 'owner', 'owner@email.org')");
+        primary.update("INSERT INTO items (item_id, name, description, available, owner_id, version) " +
+                "VALUES (1000, 'drill', 'primary', TRUE, 1000, 0)");
+        replica.update("INSERT INTO items (item_id, name, description, available, owner_id, version) " +
+                "VALUES (1000, 'drill', 'replica', TRUE, 1000, 3)");
+
+        ItemDto changed = itemService.change(1000, 1000, ItemDto.builder().name("renamed").build());
+
+        assertThat(changed.getDescription()).isEqualTo("primary");
+        assertThat(primary.queryForMap("SELECT name, version FROM items WHERE item_id = 1000"))
+                .containsEntry("NAME", "renamed")
+                .containsEntry("VERSION", 1);
+        assertThat(replica.queryForObject("SELECT name FROM items WHERE item_id = 1000", String.class))
+                .isEqualTo("drill");
+    }
+
+    @Test
+    void shouldCacheUsersReadFromPrimary() {
+        primary.update("INSERT INTO users (user_id, name, email) VALUES (1001, 'current', 'cached@email.org')");
+        replica.update("INSERT INTO users (user_id, name, email) VALUES (1001, 'stale', 'cached@email.org')");
+
+        assertThat(userCache.get(1001).getName()).isEqualTo("current");
+        userCache.invalidate(1001);
+    }
+
+    @Test
+    void shouldRouteByTransactionReadOnlyFlag() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        assertThat(ReplicaRoutingDataSource.currentRoute()).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        assertThat(routeIn(transaction)).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        transaction.setReadOnly(true);
+        assertThat(routeIn(transaction)).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+    }
+
+    private static ReplicaRoutingDataSource.Route routeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> ReplicaRoutingDataSource.currentRoute());
+    }
+}
@@ -0,0 +1,180 @@
+package ru.practicum.shareit;
+
+import org.assertj.core.api.SoftAssertions;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.comment.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.ItemRequestRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.practicum.shareit.booking.BookingSpecifications.bookerIs;
+import static ru.practicum.shareit.booking.BookingSpecifications.inState;
+import static ru.practicum.shareit.booking.BookingSpecifications.itemOwnerIs;
+
+/**
+ * Runs EXPLAIN on the SQL of every lookup method and fails when H2 falls back to a table scan.
+ * Text search is left out: a substring LIKE cannot use a B-tree index and is served by the search index.
+ * H2 indexes foreign keys on its own, so here the test mostly guards query shapes that no index can serve.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.RepositoryQueryPlanTest$RecordingStatementInspector")
+@AutoConfigureTestDatabase
+public class RepositoryQueryPlanTest {
+    private static final int USERS = 100;
+    private static final int ROWS_PER_USER = 20;
+    private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final PageRequest page = PageRequest.of(0, 10);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void seed() {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> requests = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        List<Object[]> bookings = new ArrayList<>();
+        List<Object[]> archived = new ArrayList<>();
+        List<Object[]> comments = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            users.add(new Object[]{i, "user" + i, "user" + i + "@email.org"});
+            requests.add(new Object[]{i, now.minusDays(i), i});
+        }
+        for (int i = 1; i <= USERS * ROWS_PER_USER; i++) {
+            int user = i % USERS + 1;
+            items.add(new Object[]{i, "item" + i, i % 2 == 0, user, i % 3 == 0 ? user : null});
+            bookings.add(new Object[]{now.minusDays(i % 30), now.plusDays(i % 30 - 15), i, user,
+                    BookingStatus.values()[i % 4].name()});
+            archived.add(new Object[]{i, now.minusDays(i % 300 + 100), now.minusDays(i % 300 + 99), i, user,
+                    BookingStatus.values()[i % 3 + 1].name()});
+            comments.add(new Object[]{"text", i, user, now.minusHours(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, name, email) VALUES (?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("INSERT INTO item_request (item_request_id, created, description, user_id) " +
+                "VALUES (?, ?, 'about', ?)", requests);
+        jdbcTemplate.batchUpdate("INSERT INTO items (item_id, name, description, available, owner_id, request_id) " +
+                "VALUES (?, ?, 'about', ?, ?, ?)", items);
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (start_time, end_time, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, CAST(? AS BOOKING_STATUS))", bookings);
+        jdbcTemplate.batchUpdate("INSERT INTO bookings_archive (booking_id, start_time, end_time, item_id, booker_id, " +
+                "status) VALUES (-?, ?, ?, ?, ?, CAST(? AS BOOKING_STATUS))", archived);
+        jdbcTemplate.batchUpdate("INSERT INTO comments (text, item_id, author_id, created) VALUES (?, ?, ?, ?)",
+                comments);
+        STATEMENTS.clear();
+    }
+
+    @Test
+    void bookerListingsShouldUseIndexes() {
+        for (BookingState state : BookingState.values()) {
+            bookingRepository.findPage(bookerIs(1).and(inState(state, now)), page, state.reachesArchive());
+        }
+        bookingRepository.findAllAfter(bookerIs(1).and(inState(BookingState.ALL, now)), Cursor.of(now, 1), 10,
+                true);
+
+        assertNoTableScans();
+    }
+
+    @Test
+    void ownerListingsShouldUseIndexes() {
+        for (BookingState state : BookingState.values()) {
+            bookingRepository.findPage(itemOwnerIs(1).and(inState(state, now)), page, state.reachesArchive());
+        }
+        bookingRepository.findAllAfter(itemOwnerIs(1).and(inState(BookingState.ALL, now)), Cursor.of(now, 1), 10,
+                true);
+
+        assertNoTableScans();
+    }
+
+    @Test
+    void itemBookingLookupsShouldUseIndexes() {
+        bookingRepository.findAllByItemIdOrderByStart(1);
+        bookingRepository.findAllByItemIdAndBookerIdAndEndBeforeOrderByStartDesc(1, 1, now);
+        bookingRepository.findAllByItemIdAndStatusInAndEndAfter(1, List.of(BookingStatus.WAITING), now);
+        bookingRepository.findLastBookings(List.of(1, 2), now);
+        bookingRepository.findNextBookings(List.of(1, 2), now);
+        bookingRepository.findLastArchivedBooking(1);
+        bookingRepository.existsArchivedByItemIdAndBookerIdAndEndBefore(1, 1, now);
+        bookingRepository.findArchivedResponseByIdAndParticipant(-1, 1);
+
+        assertNoTableScans();
+    }
+
+    @Test
+    void bookingExpiryAndArchivalShouldUseIndexes() {
+        bookingRepository.cancelWaitingStartedBefore(now, 10);
+        bookingRepository.archiveEndedBefore(now.minusDays(10), 10);
+
+        assertNoTableScans();
+    }
+
+    @Test
+    void itemCommentAndRequestLookupsShouldUseIndexes() {
+        itemRepository.findAllByOwnerId(1, page);
+        itemRepository.findAllByOwnerIdAndIdGreaterThanOrderById(1, 0, page);
+        itemRepository.findAvailableForSearch(0, page);
+        itemRepository.findAllByRequestId(1);
+        itemRepository.findAllByRequestIdIn(List.of(1, 2));
+        commentRepository.findAllByItemIdOrderByCreatedDesc(1);
+        commentRepository.findAllByItemIdIn(List.of(1, 2));
+        itemRequestRepository.findAllByUserIdOrderByCreatedDesc(1);
+        userRepository.findByEmail("user@email.org");
+
+        assertNoTableScans();
+    }
+
+    private void assertNoTableScans() {
+        assertThat(STATEMENTS).isNotEmpty();
+        SoftAssertions softly = new SoftAssertions();
+        for (String sql : List.copyOf(STATEMENTS)) {
+            String plan = jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                    resultSet -> resultSet.next() ? resultSet.getString(1) : "");
+            softly.assertThat(plan).as(sql).doesNotContainIgnoringCase("tableScan");
+        }
+        softly.assertAll();
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.BookingArchiver;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserService;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        properties = "spring.datasource.url=jdbc:h2:mem:second-level-cache",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class SecondLevelCacheTest {
+    private final UserService userService;
+    private final ItemService itemService;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingArchiver bookingArchiver;
+
+    private Statistics statistics;
+    private Cache cache;
+    private User owner;
+    private Item item;
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cache = entityManagerFactory.getCache();
+        owner = userService.create(new User(null, "owner", "owner@email.org"));
+        ItemDto itemDto = itemService.createItem(owner.getId(),
+                ItemDto.builder().name("drill").description("about drill").available(true).build());
+        item = itemRepository.findById(itemDto.getId()).orElseThrow();
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM users");
+        // JPA's evictAll leaves the natural id regions, which would still map the deleted emails
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromTheCache() {
+        statistics.clear();
+
+        userRepository.findById(owner.getId());
+        itemRepository.findById(item.getId());
+        userRepository.findByEmail(owner.getEmail());
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(3);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFollowEmailChanges() {
+        userRepository.findByEmail(owner.getEmail());
+
+        userService.change(owner.getId(), new User(null, null, "moved@email.org"));
+
+        assertThat(userRepository.findByEmail("owner@email.org")).isEmpty();
+        assertThat(userRepository.findByEmail("moved@email.org")).map(User::getId).contains(owner.getId());
+    }
+
+    @Test
+    void shouldEvictItemsAndRequestsCascadedByUserDeletion() {
+        assertThat(cache.contains(User.class, owner.getId())).isTrue();
+        assertThat(cache.contains(Item.class, item.getId())).isTrue();
+
+        userService.delete(owner.getId());
+
+        assertThat(cache.contains(User.class, owner.getId())).isFalse();
+        assertThat(cache.contains(Item.class, item.getId())).isFalse();
+        assertThat(itemRepository.findById(item.getId())).isEmpty();
+    }
+
+    @Test
+    void shouldKeepCachedEntitiesWhileArchivingBookings() {
+        User booker = userService.create(new User(null, "booker", "booker@email.org"));
+        LocalDateTime end = LocalDateTime.now().minusYears(1);
+        jdbcTemplate.update("INSERT INTO bookings (start_time, end_time, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, 'APPROVED')", end.minusDays(1), end, item.getId(), booker.getId());
+        assertThat(cache.contains(User.class, owner.getId())).isTrue();
+
+        assertThat(bookingArchiver.archiveEnded()).isEqualTo(1);
+
+        assertThat(cache.contains(User.class, owner.getId())).isTrue();
+        assertThat(cache.contains(Item.class, item.getId())).isTrue();
+    }
+
+    @Test
+    void shouldEvictDeletedItem() {
+        itemService.delete(owner.getId(), item.getId());
+
+        assertThat(cache.contains(Item.class, item.getId())).isFalse();
+        assertThat(itemRepository.findById(item.getId())).isEmpty();
+    }
+}
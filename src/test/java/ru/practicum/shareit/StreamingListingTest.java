@@ -0,0 +1,120 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.RowStreaming;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:streaming-listing")
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class StreamingListingTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    private static final int ITEMS = 1200;
+    private static final int BOOKINGS = 1000;
+
+    private final MockMvc mockMvc;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final UserCache userCache;
+
+    private int ownerId;
+    private int bookerId;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('owner', 'owner@email.org')");
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('booker', 'booker@email.org')");
+        ownerId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE name = 'owner'", Integer.class);
+        bookerId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE name = 'booker'", Integer.class);
+
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(new Object[]{"item " + i, "about item " + i, ownerId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO items (name, description, available, owner_id, version) " +
+                "VALUES (?, ?, TRUE, ?, 0)", items);
+        int itemId = jdbcTemplate.queryForObject("SELECT MIN(item_id) FROM items", Integer.class);
+
+        LocalDateTime start = LocalDateTime.now().minusDays(BOOKINGS);
+        List<Object[]> bookings = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            bookings.add(new Object[]{Timestamp.valueOf(start.plusDays(i)),
+                    Timestamp.valueOf(start.plusDays(i).plusHours(1)), itemId, bookerId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (start_time, end_time, item_id, booker_id, status, version) " +
+                "VALUES (?, ?, ?, ?, 'APPROVED', 0)", bookings);
+        userCache.get(ownerId);
+        userCache.get(bookerId);
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM users");
+        userCache.invalidate(ownerId);
+        userCache.invalidate(bookerId);
+    }
+
+    @Test
+    void shouldStreamEveryBookingAsJsonArray() throws Exception {
+        JsonNode bookings = objectMapper.readTree(mockMvc.perform(get("/bookings").header(USER_ID_HEADER, bookerId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+
+        assertThat(bookings.size()).isEqualTo(BOOKINGS);
+        assertThat(bookings.get(0).get("start").asText()).isGreaterThan(bookings.get(1).get("start").asText());
+    }
+
+    @Test
+    void shouldStreamEveryBookingAsNdjson() throws Exception {
+        String body = mockMvc.perform(get("/bookings/owner")
+                        .header(USER_ID_HEADER, ownerId)
+                        .accept(RowStreaming.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(BOOKINGS);
+        assertThat(objectMapper.readTree(lines[BOOKINGS - 1]).get("booker").get("id").asInt()).isEqualTo(bookerId);
+    }
+
+    @Test
+    void shouldStreamItemsLoadingBookingsAndCommentsPerChunk() throws Exception {
+        JsonNode items;
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            items = objectMapper.readTree(mockMvc.perform(get("/items").header(USER_ID_HEADER, ownerId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+
+            assertThat(scope.count()).as("items, then last bookings, next bookings and comments per 500 items")
+                    .isEqualTo(1 + 3 * 3);
+        }
+        assertThat(items.size()).isEqualTo(ITEMS);
+        assertThat(items.get(0).get("lastBooking").get("bookerId").asInt()).isEqualTo(bookerId);
+        assertThat(items.get(ITEMS - 1).get("id").asInt()).isGreaterThan(items.get(0).get("id").asInt());
+    }
+
+    @Test
+    void shouldAnswerErrorsBeforeTheFirstRow() throws Exception {
+        mockMvc.perform(get("/bookings").param("state", "SOMETIMES").header(USER_ID_HEADER, bookerId))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -2,7 +2,9 @@ package ru.practicum.shareit;
 
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.dto.PartBookingView;
 import ru.practicum.shareit.item.comment.Comment;
+import ru.practicum.shareit.item.comment.CommentView;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.ItemRequest;
@@ -67,4 +69,52 @@ public class UtilsForTest {
                 .created(LocalDateTime.now())
                 .build();
     }
+
+    public static PartBookingView makePartBookingView(int itemId, Booking booking) {
+        return new PartBookingView() {
+            @Override
+            public Integer getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public Integer getId() {
+                return booking.getId();
+            }
+
+            @Override
+            public Integer getBookerId() {
+                return booking.getBooker().getId();
+            }
+        };
+    }
+
+    public static CommentView makeCommentView(int itemId, Comment comment) {
+        return new CommentView() {
+            @Override
+            public Integer getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public Integer getId() {
+                return comment.getId();
+            }
+
+            @Override
+            public String getText() {
+                return comment.getText();
+            }
+
+            @Override
+            public String getAuthorName() {
+                return comment.getAuthor().getName();
+            }
+
+            @Override
+            public LocalDateTime getCreated() {
+                return comment.getCreated();
+            }
+        };
+    }
 }
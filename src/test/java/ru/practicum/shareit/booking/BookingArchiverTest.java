@@ -0,0 +1,59 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingArchiverTest {
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookingArchiver bookingArchiver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingArchiver = new BookingArchiver(bookingRepository, meterRegistry, Duration.ofDays(30), 2, 3);
+    }
+
+    @Test
+    void shouldArchiveBookingsEndedBeforeRetentionUntilChunkComesOutShort() {
+        when(bookingRepository.archiveEndedBefore(any(), eq(2))).thenReturn(2, 1);
+        LocalDateTime started = LocalDateTime.now();
+
+        Assertions.assertThat(bookingArchiver.archiveEnded()).isEqualTo(3);
+
+        ArgumentCaptor<LocalDateTime> endedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(bookingRepository, times(2)).archiveEndedBefore(endedBefore.capture(), eq(2));
+        Assertions.assertThat(endedBefore.getValue())
+                .isBetween(started.minusDays(30), LocalDateTime.now().minusDays(30));
+        Assertions.assertThat(meterRegistry.get("shareit.booking.archive.rows").counter().count()).isEqualTo(3);
+        Assertions.assertThat(meterRegistry.get("shareit.booking.archive.batch").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldLeaveTheRestToTheNextRunAfterMaxBatches() {
+        when(bookingRepository.archiveEndedBefore(any(), anyInt())).thenReturn(2);
+
+        Assertions.assertThat(bookingArchiver.archiveEnded()).isEqualTo(6);
+
+        verify(bookingRepository, times(3)).archiveEndedBefore(any(), anyInt());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingBatchResult;
+import ru.practicum.shareit.user.UserCache;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:booking-batch-change",
+        webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BookingBatchChangeTest {
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCache userCache;
+
+    private int ownerId;
+    private int waitingId;
+    private int approvedId;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('owner', 'owner@email.org')");
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('booker', 'booker@email.org')");
+        ownerId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE name = 'owner'", Integer.class);
+        int bookerId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE name = 'booker'", Integer.class);
+        jdbcTemplate.update("INSERT INTO items (name, description, available, owner_id) " +
+                "VALUES ('drill', 'a drill', TRUE, ?)", ownerId);
+        int itemId = jdbcTemplate.queryForObject("SELECT item_id FROM items WHERE owner_id = ?", Integer.class,
+                ownerId);
+        waitingId = insertBooking(itemId, bookerId, 1, "WAITING");
+        approvedId = insertBooking(itemId, bookerId, 2, "APPROVED");
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM users");
+        userCache.invalidate(ownerId);
+    }
+
+    @Test
+    void shouldChangeNothingUnlessEveryBookingQualifies() {
+        assertThatThrownBy(() -> bookingRepository.changeStatus(List.of(waitingId, approvedId), BookingStatus.REJECTED))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(statusOf(waitingId)).isEqualTo("WAITING");
+        assertThat(statusOf(approvedId)).isEqualTo("APPROVED");
+    }
+
+    @Test
+    void shouldRejectPendingBookingsAndReportSettledOnes() {
+        List<BookingBatchResult> results = bookingService.changeAll(ownerId, List.of(waitingId, approvedId), false);
+
+        assertThat(results.get(0).getBooking().getStatus()).isEqualTo(BookingStatus.REJECTED);
+        assertThat(results.get(1).getError()).contains("already has a changed status");
+        assertThat(statusOf(waitingId)).isEqualTo("REJECTED");
+        assertThat(statusOf(approvedId)).isEqualTo("APPROVED");
+    }
+
+    private int insertBooking(int itemId, int bookerId, int day, String status) {
+        LocalDateTime start = LocalDateTime.now().plusDays(day);
+        jdbcTemplate.update("INSERT INTO bookings (start_time, end_time, item_id, booker_id, status, version) " +
+                        "VALUES (?, ?, ?, ?, CAST(? AS BOOKING_STATUS), 0)", Timestamp.valueOf(start),
+                Timestamp.valueOf(start.plusHours(1)), itemId, bookerId, status);
+        return jdbcTemplate.queryForObject("SELECT MAX(booking_id) FROM bookings", Integer.class);
+    }
+
+    private String statusOf(int bookingId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM bookings WHERE booking_id = ?", String.class,
+                bookingId);
+    }
+}
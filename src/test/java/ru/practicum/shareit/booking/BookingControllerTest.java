@@ -7,38 +7,54 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.booking.dto.BookingBatchResult;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponse;
 import ru.practicum.shareit.item.exception.ErrorHandler;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.SharerUserArgumentResolver;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.Pagination;
+import ru.practicum.shareit.utils.RowStreaming;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 public class BookingControllerTest {
     private final String userIdHeader = "X-Sharer-User-Id";
 
-    private final ObjectMapper objectMapper = new ObjectMapper()
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule());
     private MockMvc mockMvc;
 
     @Mock
     private BookingService bookingService;
 
+    @Mock
+    private UserCache userCache;
+
     @InjectMocks
     private BookingController bookingController;
 
@@ -46,7 +62,10 @@ public class BookingControllerTest {
     void setMockMvc() {
         mockMvc = MockMvcBuilders.standaloneSetup(bookingController)
                 .setControllerAdvice(ErrorHandler.class)
+                .setCustomArgumentResolvers(new SharerUserArgumentResolver(userCache))
                 .build();
+        lenient().when(userCache.get(anyInt()))
+                .thenAnswer(invocation -> UtilsForTest.makeUser(invocation.getArgument(0)));
     }
 
     @Test
@@ -64,14 +83,14 @@ public class BookingControllerTest {
 
         String json = objectMapper.writeValueAsString(bookingDto);
 
-        when(bookingService.createBooking(anyInt(), any(BookingDto.class))).thenReturn(booking);
+        when(bookingService.createBooking(anyInt(), any(BookingDto.class))).thenReturn(BookingMapper.toBookingResponse(booking));
 
         mockMvc.perform(post("/bookings")
                         .header(userIdHeader, user.getId())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(booking)));
+                .andExpect(content().json(objectMapper.writeValueAsString(BookingMapper.toBookingResponse(booking))));
     }
 
     @Test
@@ -85,13 +104,16 @@ public class BookingControllerTest {
         Booking booking = UtilsForTest.makeBooking(1, item1, user2, BookingStatus.WAITING);
         booking.setStart(LocalDateTime.now().plusHours(1));
 
-        Pageable page = Pageable.unpaged();
-        when(bookingService.getBookingsByBooker(1, "ALL", page)).thenReturn(List.of(booking));
+        doAnswer(invocation -> {
+            invocation.<Consumer<BookingResponse>>getArgument(2).accept(BookingMapper.toBookingResponse(booking));
+            return null;
+        }).when(bookingService).streamBookingsByBooker(eq(1), eq("ALL"), any());
 
         mockMvc.perform(get("/bookings")
                         .header(userIdHeader, 1))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(List.of(booking))));
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(BookingMapper.toBookingResponse(booking)))));
     }
 
     @Test
@@ -105,13 +127,20 @@ public class BookingControllerTest {
         Booking booking = UtilsForTest.makeBooking(1, item1, user2, BookingStatus.WAITING);
         booking.setStart(LocalDateTime.now().plusHours(1));
 
-        Pageable page = Pageable.unpaged();
-        when(bookingService.getBookingsByOwner(1, "ALL", page)).thenReturn(List.of(booking));
+        doAnswer(invocation -> {
+            Consumer<BookingResponse> rows = invocation.getArgument(2);
+            rows.accept(BookingMapper.toBookingResponse(booking));
+            rows.accept(BookingMapper.toBookingResponse(booking));
+            return null;
+        }).when(bookingService).streamBookingsByOwner(eq(1), eq("ALL"), any());
 
         mockMvc.perform(get("/bookings/owner")
-                        .header(userIdHeader, 1))
+                        .header(userIdHeader, 1)
+                        .accept(RowStreaming.APPLICATION_NDJSON))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(List.of(booking))));
+                .andExpect(content().contentTypeCompatibleWith(RowStreaming.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(BookingMapper.toBookingResponse(booking))
+                        + "\n" + objectMapper.writeValueAsString(BookingMapper.toBookingResponse(booking)) + "\n"));
     }
 
     @Test
@@ -135,12 +164,12 @@ public class BookingControllerTest {
         Booking booking = UtilsForTest.makeBooking(1, item1, user2, BookingStatus.WAITING);
         booking.setStart(LocalDateTime.now().plusHours(1));
 
-        when(bookingService.getBookingById(1, 1)).thenReturn(booking);
+        when(bookingService.getBookingById(1, 1)).thenReturn(BookingMapper.toBookingResponse(booking));
 
         mockMvc.perform(get("/bookings/" + 1)
                         .header(userIdHeader, 1))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(booking)));
+                .andExpect(content().json(objectMapper.writeValueAsString(BookingMapper.toBookingResponse(booking))));
     }
 
     @Test
@@ -154,12 +183,89 @@ public class BookingControllerTest {
         Booking booking = UtilsForTest.makeBooking(1, item1, user2, BookingStatus.APPROVED);
         booking.setStart(LocalDateTime.now().plusHours(1));
 
-        when(bookingService.change(anyInt(), anyInt(), anyBoolean())).thenReturn(booking);
+        when(bookingService.change(anyInt(), anyInt(), anyBoolean())).thenReturn(BookingMapper.toBookingResponse(booking));
 
         mockMvc.perform(patch("/bookings/" + booking.getId())
                         .header(userIdHeader, user.getId())
                         .queryParam("approved", "true"))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(booking)));
+                .andExpect(content().json(objectMapper.writeValueAsString(BookingMapper.toBookingResponse(booking))));
+    }
+
+    @Test
+    void shouldUpdateBookingBatch() throws Exception {
+        User user = UtilsForTest.makeUser(1);
+        Item item1 = UtilsForTest.makeItem(1, true, user, null);
+        Booking booking = UtilsForTest.makeBooking(1, item1, UtilsForTest.makeUser(2), BookingStatus.REJECTED);
+        List<BookingBatchResult> results = List.of(
+                BookingBatchResult.changed(BookingMapper.toBookingResponse(booking)),
+                BookingBatchResult.rejected(2, "not found entity booking id N2"));
+
+        when(bookingService.changeAll(1, List.of(1, 2), false)).thenReturn(results);
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .header(userIdHeader, user.getId())
+                        .queryParam("approved", "false")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(results)));
+    }
+
+    @Test
+    void shouldReturnConflictOnConcurrentModification() throws Exception {
+        when(bookingService.change(anyInt(), anyInt(), anyBoolean()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1));
+
+        mockMvc.perform(patch("/bookings/1")
+                        .header(userIdHeader, 1)
+                        .queryParam("approved", "true"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldReturnKeysetPageWithNextCursor() throws Exception {
+        User user = UtilsForTest.makeUser(1);
+        User user2 = UtilsForTest.makeUser(2);
+        Item item1 = UtilsForTest.makeItem(1, true, user, null);
+        Booking booking1 = UtilsForTest.makeBooking(1, item1, user2, BookingStatus.WAITING);
+        Booking booking2 = UtilsForTest.makeBooking(2, item1, user2, BookingStatus.WAITING);
+        Cursor after = Cursor.of(LocalDateTime.now().plusDays(3), 10);
+
+        when(bookingService.getBookingsByBookerAfter(2, "ALL", after, 2)).thenReturn(List.of(BookingMapper.toBookingResponse(booking1), BookingMapper.toBookingResponse(booking2)));
+
+        mockMvc.perform(get("/bookings")
+                        .header(userIdHeader, 2)
+                        .queryParam("size", "2")
+                        .queryParam("after", after.encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.NEXT_CURSOR_HEADER,
+                        Cursor.of(booking2.getStart(), booking2.getId()).encode()))
+                .andExpect(content().json(objectMapper.writeValueAsString(List.of(BookingMapper.toBookingResponse(booking1), BookingMapper.toBookingResponse(booking2)))));
+    }
+
+    @Test
+    void shouldStartKeysetPagesFromEmptyCursorWithoutNextCursorOnLastPage() throws Exception {
+        when(bookingService.getBookingsByOwnerAfter(1, "ALL", null, 5)).thenReturn(List.of());
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header(userIdHeader, 1)
+                        .queryParam("size", "5")
+                        .queryParam("after", ""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(Pagination.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void shouldRejectMalformedCursorOrMissingSize() throws Exception {
+        mockMvc.perform(get("/bookings")
+                        .header(userIdHeader, 1)
+                        .queryParam("size", "5")
+                        .queryParam("after", "not a cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/bookings/owner")
+                        .header(userIdHeader, 1)
+                        .queryParam("after", ""))
+                .andExpect(status().isBadRequest());
     }
 }
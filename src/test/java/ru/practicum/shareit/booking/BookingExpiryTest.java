@@ -0,0 +1,69 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingExpiryTest {
+    @Mock
+    private BookingRepository bookingRepository;
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookingExpiry bookingExpiry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingExpiry = new BookingExpiry(bookingRepository, bookingIntervalIndex, meterRegistry, 2, 3);
+    }
+
+    @Test
+    void shouldCancelChunksUntilOneComesOutShort() {
+        when(bookingRepository.cancelWaitingStartedBefore(any(), eq(2)))
+                .thenReturn(List.of(1, 1), List.of(2), List.of());
+
+        Assertions.assertThat(bookingExpiry.expireWaiting()).isEqualTo(3);
+
+        verify(bookingRepository, times(2)).cancelWaitingStartedBefore(any(), eq(2));
+        verify(bookingIntervalIndex).evict(1);
+        verify(bookingIntervalIndex).evict(2);
+        Assertions.assertThat(meterRegistry.get("shareit.booking.expiry.rows").counter().count()).isEqualTo(3);
+        Assertions.assertThat(meterRegistry.get("shareit.booking.expiry.batch").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldLeaveTheRestToTheNextRunAfterMaxBatches() {
+        when(bookingRepository.cancelWaitingStartedBefore(any(), anyInt())).thenReturn(List.of(1, 2));
+
+        Assertions.assertThat(bookingExpiry.expireWaiting()).isEqualTo(6);
+
+        verify(bookingRepository, times(3)).cancelWaitingStartedBefore(any(), anyInt());
+    }
+
+    @Test
+    void shouldTouchNothingWhenNoBookingExpired() {
+        when(bookingRepository.cancelWaitingStartedBefore(any(), anyInt())).thenReturn(List.of());
+
+        Assertions.assertThat(bookingExpiry.expireWaiting()).isZero();
+
+        verifyNoInteractions(bookingIntervalIndex);
+        Assertions.assertThat(meterRegistry.get("shareit.booking.expiry.batch").timer().count()).isEqualTo(1);
+    }
+}
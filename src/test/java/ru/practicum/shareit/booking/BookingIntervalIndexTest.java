@@ -0,0 +1,123 @@
+package ru.practicum.shareit.booking;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.item.exception.ConflictException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingIntervalIndexTest {
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @InjectMocks
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    private Item item;
+    private User booker;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void createEntityForTest() {
+        User owner = UtilsForTest.makeUser(1);
+        booker = UtilsForTest.makeUser(2);
+        item = UtilsForTest.makeItem(1, true, owner, null);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void shouldRejectBookingOverlappingLoadedOne() {
+        Booking existing = makeBooking(1, now.plusDays(1), now.plusDays(3), BookingStatus.APPROVED);
+        when(bookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyInt(), anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of(existing));
+
+        Booking overlapping = makeBooking(null, now.plusDays(2), now.plusDays(4), BookingStatus.WAITING);
+        Assertions.assertThatThrownBy(() -> bookingIntervalIndex.reserve(overlapping, () -> overlapping))
+                .isInstanceOf(ConflictException.class);
+
+        Booking adjacent = makeBooking(2, now.plusDays(3), now.plusDays(4), BookingStatus.WAITING);
+        Assertions.assertThat(bookingIntervalIndex.reserve(adjacent, () -> adjacent)).isEqualTo(adjacent);
+        verify(bookingRepository, times(1))
+                .findAllByItemIdAndStatusInAndEndAfter(anyInt(), anyCollection(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void shouldFreeIntervalOfRejectedBooking() {
+        when(bookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyInt(), anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        Booking first = makeBooking(1, now.plusDays(1), now.plusDays(3), BookingStatus.WAITING);
+        bookingIntervalIndex.reserve(first, () -> first);
+
+        Booking second = makeBooking(2, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        Assertions.assertThatThrownBy(() -> bookingIntervalIndex.reserve(second, () -> second))
+                .isInstanceOf(ConflictException.class);
+
+        first.setStatus(BookingStatus.APPROVED);
+        bookingIntervalIndex.onStatusChanged(first);
+        Assertions.assertThatThrownBy(() -> bookingIntervalIndex.reserve(second, () -> second))
+                .isInstanceOf(ConflictException.class);
+
+        first.setStatus(BookingStatus.REJECTED);
+        bookingIntervalIndex.onStatusChanged(first);
+        Assertions.assertThat(bookingIntervalIndex.reserve(second, () -> second)).isEqualTo(second);
+    }
+
+    @Test
+    void shouldDropTreesLeftEmptyByEndedIntervals() {
+        Item other = UtilsForTest.makeItem(2, true, item.getOwner(), null);
+        Booking ending = makeBooking(1, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        Booking ongoing = new Booking(2, now.plusDays(1), now.plusDays(5), other, booker, BookingStatus.WAITING, null);
+        when(bookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyInt(), anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        bookingIntervalIndex.reserve(ending, () -> ending);
+        bookingIntervalIndex.reserve(ongoing, () -> ongoing);
+        ending.setEnd(now.minusDays(1));
+        ending.setStatus(BookingStatus.CANCELED);
+        bookingIntervalIndex.onStatusChanged(ending);
+
+        bookingIntervalIndex.pruneEnded();
+
+        Assertions.assertThat(bookingIntervalIndex.trackedItems()).isEqualTo(1);
+        Booking overlapping = new Booking(null, now.plusDays(2), now.plusDays(3), other, booker,
+                BookingStatus.WAITING, null);
+        Assertions.assertThatThrownBy(() -> bookingIntervalIndex.reserve(overlapping, () -> overlapping))
+                .isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void shouldReloadTreesAfterEvictAll() {
+        when(bookingRepository.findAllByItemIdAndStatusInAndEndAfter(anyInt(), anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        Booking first = makeBooking(1, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        bookingIntervalIndex.reserve(first, () -> first);
+
+        bookingIntervalIndex.evictAll();
+
+        Assertions.assertThat(bookingIntervalIndex.trackedItems()).isZero();
+        Booking second = makeBooking(2, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        Assertions.assertThat(bookingIntervalIndex.reserve(second, () -> second)).isEqualTo(second);
+        verify(bookingRepository, times(2))
+                .findAllByItemIdAndStatusInAndEndAfter(anyInt(), anyCollection(), any(LocalDateTime.class));
+    }
+
+    private Booking makeBooking(Integer id, LocalDateTime start, LocalDateTime end, BookingStatus status) {
+        return new Booking(id, start, end, item, booker, status, null);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookingIntervalTreeTest {
+    private final LocalDateTime base = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Test
+    void shouldTreatIntervalsAsHalfOpen() {
+        BookingIntervalTree tree = new BookingIntervalTree();
+        tree.insert(1, at(10), at(20));
+
+        assertThat(tree.overlaps(at(20), at(30))).isFalse();
+        assertThat(tree.overlaps(at(0), at(10))).isFalse();
+        assertThat(tree.overlaps(at(19), at(30))).isTrue();
+        assertThat(tree.overlaps(at(12), at(15))).isTrue();
+        assertThat(tree.overlaps(at(0), at(40))).isTrue();
+    }
+
+    @Test
+    void shouldFindOverlapHiddenBehindLongInterval() {
+        BookingIntervalTree tree = new BookingIntervalTree();
+        tree.insert(1, at(0), at(100));
+        for (int i = 2; i < 20; i++) {
+            tree.insert(i, at(i * 10), at(i * 10 + 1));
+        }
+
+        assertThat(tree.overlaps(at(95), at(96))).isTrue();
+        tree.remove(1, at(0));
+        assertThat(tree.overlaps(at(95), at(96))).isFalse();
+        assertThat(tree.size()).isEqualTo(18);
+    }
+
+    @Test
+    void shouldPruneEndedIntervals() {
+        BookingIntervalTree tree = new BookingIntervalTree();
+        tree.insert(1, at(0), at(5));
+        tree.insert(2, at(3), at(8));
+        tree.insert(3, at(10), at(20));
+
+        tree.pruneEndedBefore(at(9));
+
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(tree.overlaps(at(0), at(9))).isFalse();
+        assertThat(tree.overlaps(at(15), at(16))).isTrue();
+    }
+
+    @Test
+    void shouldAgreeWithBruteForceOnRandomIntervals() {
+        Random random = new Random(7);
+        BookingIntervalTree tree = new BookingIntervalTree();
+        List<int[]> intervals = new ArrayList<>();
+
+        for (int id = 0; id < 2000; id++) {
+            int start = random.nextInt(10_000);
+            int end = start + 1 + random.nextInt(200);
+            if (random.nextInt(4) == 0 && !intervals.isEmpty()) {
+                int[] removed = intervals.remove(random.nextInt(intervals.size()));
+                tree.remove(removed[0], at(removed[1]));
+            } else {
+                intervals.add(new int[]{id, start, end});
+                tree.insert(id, at(start), at(end));
+            }
+
+            int queryStart = random.nextInt(10_000);
+            int queryEnd = queryStart + 1 + random.nextInt(200);
+            boolean expected = intervals.stream()
+                    .anyMatch(interval -> interval[1] < queryEnd && queryStart < interval[2]);
+            assertThat(tree.overlaps(at(queryStart), at(queryEnd))).isEqualTo(expected);
+        }
+        assertThat(tree.size()).isEqualTo(intervals.size());
+    }
+
+    private LocalDateTime at(int minutes) {
+        return base.plusMinutes(minutes);
+    }
+}
@@ -0,0 +1,354 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.practicum.shareit.booking.dto.BookingResponse;
+import ru.practicum.shareit.booking.dto.PartBookingView;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.utils.Cursor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase
+public class BookingRepositoryTest {
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private User owner;
+    private User booker;
+    private Item item1;
+    private Item item2;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void createEntityForTest() {
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        owner = testEntityManager.persist(new User(null, "owner", "owner@email.org"));
+        booker = testEntityManager.persist(new User(null, "booker", "booker@email.org"));
+        item1 = testEntityManager.persist(new Item(null, "item1", "about item1", true, null, owner, null));
+        item2 = testEntityManager.persist(new Item(null, "item2", "about item2", true, null, owner, null));
+    }
+
+    @Test
+    void shouldFindLastAndNextBookingsForEveryItem() {
+        persistBooking(item1, now.minusDays(5), now.minusDays(3));
+        Booking last = persistBooking(item1, now.minusDays(2), now.minusDays(1));
+        Booking next = persistBooking(item1, now.minusHours(1), now.plusDays(1));
+        persistBooking(item1, now.plusDays(2), now.plusDays(3));
+        Booking onlyNext = persistBooking(item2, now.plusDays(1), now.plusDays(2));
+
+        List<PartBookingView> lastBookings = bookingRepository.findLastBookings(List.of(item1.getId(), item2.getId()), now);
+        List<PartBookingView> nextBookings = bookingRepository.findNextBookings(List.of(item1.getId(), item2.getId()), now);
+
+        assertThat(lastBookings).hasSize(1);
+        assertThat(lastBookings.get(0).getItemId()).isEqualTo(item1.getId());
+        assertThat(lastBookings.get(0).getId()).isEqualTo(last.getId());
+        assertThat(lastBookings.get(0).getBookerId()).isEqualTo(booker.getId());
+
+        assertThat(nextBookings).hasSize(2);
+        assertThat(nextBookings)
+                .filteredOn(booking -> booking.getItemId().equals(item1.getId()))
+                .extracting(PartBookingView::getId)
+                .containsExactly(next.getId());
+        assertThat(nextBookings)
+                .filteredOn(booking -> booking.getItemId().equals(item2.getId()))
+                .extracting(PartBookingView::getId)
+                .containsExactly(onlyNext.getId());
+    }
+
+    @Test
+    void shouldReturnNothingForItemsWithoutBookings() {
+        assertThat(bookingRepository.findLastBookings(List.of(item1.getId()), now)).isEmpty();
+        assertThat(bookingRepository.findNextBookings(List.of(item1.getId()), now)).isEmpty();
+    }
+
+    @Test
+    void shouldWalkKeysetPagesWithoutGapsOrDuplicates() {
+        LocalDateTime start = now.plusDays(1);
+        List<Booking> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            expected.add(persistBooking(i % 2 == 0 ? item1 : item2, start.plusHours(i / 3), start.plusDays(2)));
+        }
+        persistBooking(item1, now.minusDays(3), now.minusDays(2));
+        expected.sort((first, second) -> second.getStart().equals(first.getStart())
+                ? second.getId() - first.getId()
+                : second.getStart().compareTo(first.getStart()));
+
+        List<Integer> walked = new ArrayList<>();
+        Cursor after = null;
+        List<BookingResponse> page;
+        do {
+            page = bookingRepository.findAllAfter(BookingSpecifications.bookerIs(booker.getId())
+                    .and(BookingSpecifications.inState(BookingState.FUTURE, now)), after, 3, false);
+            page.forEach(booking -> walked.add(booking.getId()));
+            if (!page.isEmpty()) {
+                BookingResponse last = page.get(page.size() - 1);
+                after = Cursor.of(last.getStart(), last.getId());
+            }
+        } while (page.size() == 3);
+
+        assertThat(walked).containsExactlyElementsOf(expected.stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldFilterKeysetPageByItemOwner() {
+        Booking booking = persistBooking(item1, now.plusDays(1), now.plusDays(2));
+
+        assertThat(bookingRepository.findAllAfter(BookingSpecifications.itemOwnerIs(owner.getId())
+                .and(BookingSpecifications.inState(BookingState.ALL, now)), null, 10, true))
+                .extracting(BookingResponse::getId)
+                .containsExactly(booking.getId());
+        assertThat(bookingRepository.findAllAfter(BookingSpecifications.itemOwnerIs(booker.getId())
+                .and(BookingSpecifications.inState(BookingState.ALL, now)), null, 10, true))
+                .isEmpty();
+    }
+
+    @Test
+    void shouldFilterPageByState() {
+        Booking past = persistBooking(item1, now.minusDays(3), now.minusDays(2));
+        Booking current = persistBooking(item1, now.minusDays(1), now.plusDays(1));
+        Booking future = persistBooking(item2, now.plusDays(1), now.plusDays(2));
+        Booking waiting = testEntityManager.persist(
+                new Booking(null, now.plusDays(3), now.plusDays(4), item2, booker, BookingStatus.WAITING, null));
+        Booking rejected = testEntityManager.persist(
+                new Booking(null, now.plusDays(5), now.plusDays(6), item2, booker, BookingStatus.REJECTED, null));
+
+        assertThat(findPage(BookingState.ALL))
+                .containsExactly(rejected.getId(), waiting.getId(), future.getId(), current.getId(), past.getId());
+        assertThat(findPage(BookingState.CURRENT)).containsExactly(current.getId());
+        assertThat(findPage(BookingState.PAST)).containsExactly(past.getId());
+        assertThat(findPage(BookingState.FUTURE)).containsExactly(rejected.getId(), waiting.getId(), future.getId());
+        assertThat(findPage(BookingState.WAITING)).containsExactly(waiting.getId());
+        assertThat(findPage(BookingState.REJECTED)).containsExactly(rejected.getId());
+    }
+
+    @Test
+    void shouldProjectPageInOneStatement() {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            User requester = testEntityManager.persist(new User(null, "requester" + i, "requester" + i + "@email.org"));
+            ItemRequest request = testEntityManager.persist(new ItemRequest(null, now, "request" + i, requester));
+            User itemOwner = i % 2 == 0 ? owner : testEntityManager.persist(
+                    new User(null, "owner" + i, "owner" + i + "@email.org"));
+            Item item = testEntityManager.persist(new Item(null, "item" + i, "about", true, request, itemOwner, null));
+            User itemBooker = testEntityManager.persist(new User(null, "booker" + i, "booker" + i + "@email.org"));
+            testEntityManager.persist(new Booking(null, now.plusMinutes(i), now.plusDays(1), item, itemBooker,
+                    BookingStatus.WAITING, null));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = testEntityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BookingResponse> page = bookingRepository.findPage(
+                BookingSpecifications.inState(BookingState.WAITING, now), PageRequest.of(0, PAGE_SIZE), false);
+
+        assertThat(page).hasSize(PAGE_SIZE);
+        assertThat(page.get(0).getItem().getName()).isEqualTo("item" + (PAGE_SIZE - 1));
+        assertThat(page).allSatisfy(booking -> assertThat(booking.getBooker().getId()).isNotNull());
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private List<Integer> findPage(BookingState state) {
+        return bookingRepository.findPage(BookingSpecifications.bookerIs(booker.getId())
+                        .and(BookingSpecifications.inState(state, now)), PageRequest.of(0, 10), state.reachesArchive())
+                .stream()
+                .map(BookingResponse::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void shouldFindBookingResponseOnlyForBookerAndOwner() {
+        Booking booking = persistBooking(item1, now.plusDays(1), now.plusDays(2));
+        User stranger = testEntityManager.persist(new User(null, "stranger", "stranger@email.org"));
+
+        assertThat(bookingRepository.findResponseByIdAndParticipant(booking.getId(), booker.getId()))
+                .get()
+                .isEqualTo(BookingMapper.toBookingResponse(booking));
+        assertThat(bookingRepository.findResponseByIdAndParticipant(booking.getId(), owner.getId())).isPresent();
+        assertThat(bookingRepository.findResponseByIdAndParticipant(booking.getId(), stranger.getId())).isEmpty();
+    }
+
+    @Test
+    void shouldChangeStatusOfPendingBookingsInOneStatement() {
+        Booking waiting = persistBooking(item1, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        Booking otherWaiting = persistBooking(item2, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        bookingRepository.changeStatus(List.of(waiting.getId(), otherWaiting.getId()), BookingStatus.APPROVED);
+
+        assertThat(bookingRepository.findAllByIdIn(List.of(waiting.getId(), otherWaiting.getId())))
+                .allSatisfy(booking -> {
+                    assertThat(booking.getStatus()).isEqualTo(BookingStatus.APPROVED);
+                    assertThat(booking.getVersion()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void shouldNotChangeStatusOfCanceledBooking() {
+        Booking canceled = persistBooking(item1, now.plusDays(1), now.plusDays(2), BookingStatus.CANCELED);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThatThrownBy(() -> bookingRepository.changeStatus(List.of(canceled.getId()), BookingStatus.APPROVED))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(bookingRepository.findById(canceled.getId())).get()
+                .extracting(Booking::getStatus).isEqualTo(BookingStatus.CANCELED);
+    }
+
+    @Test
+    void shouldRefuseStatusChangeUnlessEveryBookingQualifies() {
+        Booking waiting = persistBooking(item1, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        Booking ofUnavailable = persistBooking(item2, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        item2.setAvailable(false);
+        testEntityManager.flush();
+
+        assertThatThrownBy(() -> bookingRepository.changeStatus(List.of(waiting.getId(), ofUnavailable.getId()),
+                BookingStatus.APPROVED)).isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void shouldCancelOldestStartedWaitingBookingsUpToLimit() {
+        Booking oldest = persistBooking(item1, now.minusDays(3), now.plusDays(1), BookingStatus.WAITING);
+        Booking older = persistBooking(item2, now.minusDays(2), now.plusDays(1), BookingStatus.WAITING);
+        Booking old = persistBooking(item1, now.minusDays(1), now.plusDays(1), BookingStatus.WAITING);
+        Booking approved = persistBooking(item1, now.minusDays(4), now.plusDays(1), BookingStatus.APPROVED);
+        Booking future = persistBooking(item2, now.plusDays(1), now.plusDays(2), BookingStatus.WAITING);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(bookingRepository.cancelWaitingStartedBefore(now, 2)).containsExactly(item1.getId(), item2.getId());
+        assertThat(bookingRepository.cancelWaitingStartedBefore(now, 2)).containsExactly(item1.getId());
+        assertThat(bookingRepository.cancelWaitingStartedBefore(now, 2)).isEmpty();
+
+        testEntityManager.clear();
+        assertThat(bookingRepository.findAllByIdIn(List.of(oldest.getId(), older.getId(), old.getId())))
+                .allSatisfy(booking -> {
+                    assertThat(booking.getStatus()).isEqualTo(BookingStatus.CANCELED);
+                    assertThat(booking.getVersion()).isEqualTo(1);
+                });
+        assertThat(bookingRepository.findById(approved.getId()).orElseThrow().getStatus())
+                .isEqualTo(BookingStatus.APPROVED);
+        assertThat(bookingRepository.findById(future.getId()).orElseThrow().getStatus())
+                .isEqualTo(BookingStatus.WAITING);
+    }
+
+    @Test
+    void shouldArchiveSettledBookingsEndedBeforeTimeKeepingTheirIds() {
+        Booking oldest = persistBooking(item1, now.minusDays(40), now.minusDays(39), BookingStatus.APPROVED);
+        Booking rejected = persistBooking(item2, now.minusDays(30), now.minusDays(29), BookingStatus.REJECTED);
+        Booking waiting = persistBooking(item1, now.minusDays(35), now.minusDays(34), BookingStatus.WAITING);
+        Booking recent = persistBooking(item1, now.minusDays(3), now.minusDays(2), BookingStatus.APPROVED);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(bookingRepository.archiveEndedBefore(now.minusDays(10), 1)).isEqualTo(1);
+        assertThat(bookingRepository.archiveEndedBefore(now.minusDays(10), 5)).isEqualTo(1);
+        assertThat(bookingRepository.archiveEndedBefore(now.minusDays(10), 5)).isZero();
+
+        testEntityManager.clear();
+        assertThat(bookingRepository.findAll()).extracting(Booking::getId)
+                .containsExactlyInAnyOrder(waiting.getId(), recent.getId());
+        assertThat(testEntityManager.find(ArchivedBooking.class, oldest.getId()).getStatus())
+                .isEqualTo(BookingStatus.APPROVED);
+        assertThat(testEntityManager.find(ArchivedBooking.class, rejected.getId()).getStatus())
+                .isEqualTo(BookingStatus.REJECTED);
+    }
+
+    @Test
+    void shouldMergeArchivedBookingsIntoListingsReachingTheArchive() {
+        Booking archivedOld = persistBooking(item1, now.minusDays(40), now.minusDays(39));
+        Booking archivedRejected = persistBooking(item2, now.minusDays(30), now.minusDays(29),
+                BookingStatus.REJECTED);
+        Booking past = persistBooking(item1, now.minusDays(3), now.minusDays(2));
+        Booking future = persistBooking(item2, now.plusDays(1), now.plusDays(2));
+        testEntityManager.flush();
+        bookingRepository.archiveEndedBefore(now.minusDays(10), 10);
+        testEntityManager.clear();
+
+        assertThat(findPage(BookingState.ALL))
+                .containsExactly(future.getId(), past.getId(), archivedRejected.getId(), archivedOld.getId());
+        assertThat(findPage(BookingState.PAST))
+                .containsExactly(past.getId(), archivedRejected.getId(), archivedOld.getId());
+        assertThat(findPage(BookingState.REJECTED)).containsExactly(archivedRejected.getId());
+        assertThat(findPage(BookingState.FUTURE)).containsExactly(future.getId());
+        assertThat(bookingRepository.findPage(BookingSpecifications.bookerIs(booker.getId()), PageRequest.of(1, 2),
+                true)).extracting(BookingResponse::getId).containsExactly(archivedRejected.getId(), archivedOld.getId());
+        assertThat(bookingRepository.findAllAfter(BookingSpecifications.itemOwnerIs(owner.getId()),
+                Cursor.of(past.getStart(), past.getId()), 1, true))
+                .extracting(BookingResponse::getId).containsExactly(archivedRejected.getId());
+        try (Stream<BookingResponse> all = bookingRepository.streamAll(
+                BookingSpecifications.bookerIs(booker.getId()), 2, true)) {
+            assertThat(all).extracting(BookingResponse::getId)
+                    .containsExactly(future.getId(), past.getId(), archivedRejected.getId(), archivedOld.getId());
+        }
+    }
+
+    @Test
+    void shouldFindArchivedBookingsBehindHotLookups() {
+        Booking archived = persistBooking(item1, now.minusDays(40), now.minusDays(39));
+        persistBooking(item2, now.minusDays(3), now.minusDays(2));
+        User stranger = testEntityManager.persist(new User(null, "stranger", "stranger@email.org"));
+        testEntityManager.flush();
+        bookingRepository.archiveEndedBefore(now.minusDays(10), 10);
+        testEntityManager.clear();
+
+        assertThat(bookingRepository.findLastBookings(List.of(item1.getId(), item2.getId()), now))
+                .filteredOn(booking -> booking.getItemId().equals(item1.getId()))
+                .extracting(PartBookingView::getId)
+                .containsExactly(archived.getId());
+        assertThat(bookingRepository.findLastArchivedBooking(item1.getId()))
+                .get()
+                .extracting(PartBookingView::getId)
+                .isEqualTo(archived.getId());
+        assertThat(bookingRepository.findLastArchivedBooking(item2.getId())).isEmpty();
+        assertThat(bookingRepository.findArchivedResponseByIdAndParticipant(archived.getId(), owner.getId()))
+                .isPresent();
+        assertThat(bookingRepository.findArchivedResponseByIdAndParticipant(archived.getId(), stranger.getId()))
+                .isEmpty();
+        assertThat(bookingRepository.existsArchivedById(archived.getId())).isTrue();
+        assertThat(bookingRepository.existsArchivedByItemIdAndBookerIdAndEndBefore(item1.getId(), booker.getId(),
+                now)).isTrue();
+        assertThat(bookingRepository.existsArchivedByItemIdAndBookerIdAndEndBefore(item2.getId(), booker.getId(),
+                now)).isFalse();
+    }
+
+    private Booking persistBooking(Item item, LocalDateTime start, LocalDateTime end) {
+        return persistBooking(item, start, end, BookingStatus.APPROVED);
+    }
+
+    private Booking persistBooking(Item item, LocalDateTime start, LocalDateTime end, BookingStatus status) {
+        return testEntityManager.persist(new Booking(null, start, end, item, booker, status, null));
+    }
+}
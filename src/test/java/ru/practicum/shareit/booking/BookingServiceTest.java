@@ -1,29 +1,51 @@
 package ru.practicum.shareit.booking;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.booking.dto.BookingBatchResult;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.item.exception.BadRequestException;
+import ru.practicum.shareit.item.exception.ConflictException;
 import ru.practicum.shareit.item.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.ItemLockManager;
+import ru.practicum.shareit.utils.OptimisticRetry;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,9 +53,15 @@ public class BookingServiceTest {
     @Mock
     private BookingRepository bookingRepository;
     @Mock
-    private UserRepository userRepository;
+    private UserCache userCache;
     @Mock
     private ItemRepository itemRepository;
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+    @Spy
+    private ItemLockManager itemLockManager = new ItemLockManager(new SimpleMeterRegistry());
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     private User user;
     private ItemRequest itemRequest;
@@ -59,181 +87,209 @@ public class BookingServiceTest {
     @Test
     void shouldCreateBooking() {
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRepository.findById(anyInt())).thenReturn(Optional.ofNullable(item1));
         when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
-        Assertions.assertThat(bookingService.createBooking(2, bookingDto)).isEqualTo(booking);
+        when(bookingIntervalIndex.reserve(any(Booking.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Booking>>getArgument(1).get());
+        Assertions.assertThat(bookingService.createBooking(2, bookingDto))
+                .isEqualTo(BookingMapper.toBookingResponse(booking));
     }
 
     @Test
-    void shouldGetBookingById() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
-        Assertions.assertThat(bookingService.getBookingById(1, 5)).isEqualTo(booking);
+    void shouldNotSaveOverlappingBooking() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemRepository.findById(anyInt())).thenReturn(Optional.ofNullable(item1));
+        when(bookingIntervalIndex.reserve(any(Booking.class), any()))
+                .thenThrow(new ConflictException("item id N1 is already booked for these dates"));
+        Assertions.assertThatThrownBy(() -> bookingService.createBooking(2, bookingDto))
+                .isInstanceOf(ConflictException.class);
+        verify(bookingRepository, never()).save(any(Booking.class));
     }
 
     @Test
-    void shouldGetBookingsByOwner() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository.findAllByItemOwnerIdOrderByStartDesc(anyInt(), any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByOwner(1, "ALL", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldReleaseIntervalOfRejectedBooking() {
+        booking.setStatus(BookingStatus.WAITING);
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        Assertions.assertThat(bookingService.change(1, 1, false).getStatus()).isEqualTo(BookingStatus.REJECTED);
+        verify(bookingIntervalIndex).onStatusChanged(booking);
     }
 
     @Test
-    void shouldGetBookingsByOwnerStatusCurrent() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(
-                        anyInt(),
-                        any(LocalDateTime.class),
-                        any(LocalDateTime.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByOwner(1, "CURRENT", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldGiveUpApprovalAfterRepeatedConcurrentModification() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findById(anyInt())).thenAnswer(invocation -> {
+            booking.setStatus(BookingStatus.WAITING);
+            return Optional.of(booking);
+        });
+        when(bookingRepository.save(any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1));
+
+        Assertions.assertThatThrownBy(() -> bookingService.change(1, 1, true))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(bookingRepository, times(OptimisticRetry.MAX_ATTEMPTS)).save(any(Booking.class));
+        verify(bookingIntervalIndex, never()).onStatusChanged(any(Booking.class));
     }
 
     @Test
-    void shouldGetBookingsByOwnerStatusPast() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(
-                        anyInt(),
-                        any(LocalDateTime.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByOwner(1, "PAST", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldNotApproveBookingOfUnavailableItem() {
+        booking.setStatus(BookingStatus.WAITING);
+        item1.setAvailable(false);
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
+
+        Assertions.assertThatThrownBy(() -> bookingService.change(1, 1, true))
+                .isInstanceOf(BadRequestException.class);
+        verify(itemLockManager).withLock(anyInt(), any());
+        verify(bookingRepository, never()).save(any(Booking.class));
     }
 
     @Test
-    void shouldGetBookingsByOwnerStatusFuture() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByItemOwnerIdAndStartAfterOrderByStartDesc(
-                        anyInt(),
-                        any(LocalDateTime.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByOwner(1, "FUTURE", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldNotApproveCanceledBooking() {
+        booking.setStatus(BookingStatus.CANCELED);
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
+
+        Assertions.assertThatThrownBy(() -> bookingService.change(1, 1, true))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("booking id N1 already has a changed status");
+        verify(bookingRepository, never()).save(any(Booking.class));
     }
 
     @Test
-    void shouldGetBookingsByOwnerStatusWaiting() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByItemOwnerIdAndStatusOrderByStartDesc(
-                        anyInt(),
-                        any(BookingStatus.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByOwner(1, "WAITING", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldRecognizeOwnerByIdWhenCachedUserIsStale() {
+        booking.setStatus(BookingStatus.WAITING);
+        User renamed = UtilsForTest.makeUser(1);
+        renamed.setName("renamed");
+        item1.setOwner(renamed);
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        Assertions.assertThat(bookingService.change(1, 1, true).getStatus()).isEqualTo(BookingStatus.APPROVED);
     }
 
     @Test
-    void shouldGetBookingsByOwnerStatusRejected() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByItemOwnerIdAndStatusOrderByStartDesc(
-                        anyInt(),
-                        any(BookingStatus.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByOwner(1, "REJECTED", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldChangeOwnedPendingBookingsInOneUpdateAndReportTheOthers() {
+        User other = UtilsForTest.makeUser(2);
+        Item otherItem = UtilsForTest.makeItem(2, true, other, null);
+        Item unavailable = UtilsForTest.makeItem(3, false, user, null);
+        Booking waiting = UtilsForTest.makeBooking(1, item1, other, BookingStatus.WAITING);
+        Booking canceled = UtilsForTest.makeBooking(2, item1, other, BookingStatus.CANCELED);
+        Booking approved = UtilsForTest.makeBooking(3, item1, other, BookingStatus.APPROVED);
+        Booking notOwned = UtilsForTest.makeBooking(4, otherItem, user, BookingStatus.WAITING);
+        Booking ofUnavailable = UtilsForTest.makeBooking(5, unavailable, other, BookingStatus.WAITING);
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findAllByIdIn(List.of(1, 2, 3, 4, 5, 6)))
+                .thenReturn(List.of(waiting, canceled, approved, notOwned, ofUnavailable));
+        doAnswer(invocation -> {
+            Object result = invocation.callRealMethod();
+            verify(bookingIntervalIndex).onStatusChanged(waiting);
+            return result;
+        }).when(itemLockManager).withLocks(any(), any());
+        List<BookingBatchResult> results = bookingService.changeAll(1, List.of(1, 2, 3, 4, 5, 6, 1), true);
+
+        Assertions.assertThat(results).extracting(BookingBatchResult::getId).containsExactly(1, 2, 3, 4, 5, 6);
+        Assertions.assertThat(results.get(0).getBooking().getStatus()).isEqualTo(BookingStatus.APPROVED);
+        Assertions.assertThat(results.get(1).getError()).isEqualTo("booking id N2 already has a changed status");
+        Assertions.assertThat(results.get(2).getError()).isEqualTo("booking id N3 already has a changed status");
+        Assertions.assertThat(results.get(3).getError()).isEqualTo("not found entity booking id N4");
+        Assertions.assertThat(results.get(4).getError()).isEqualTo("Item with item id N3 is unavailable");
+        Assertions.assertThat(results.get(5).getError()).isEqualTo("not found entity booking id N6");
+        verify(bookingRepository).changeStatus(List.of(1), BookingStatus.APPROVED);
+        verify(itemLockManager).withLocks(eq(Set.of(item1.getId())), any());
     }
 
     @Test
-    void shouldThrowBadRequestExceptionByUnknownStatusBookingOfOwner() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        Assertions.assertThatThrownBy(
-                        () -> bookingService.getBookingsByOwner(1, "popopo", Pageable.unpaged()))
-                .isInstanceOf(BadRequestException.class
-                );
+    void shouldRereadBookingsWhenBatchUpdateLosesToConcurrentChange() {
+        Booking waiting = UtilsForTest.makeBooking(1, item1, user, BookingStatus.WAITING);
+        Booking rejectedMeanwhile = UtilsForTest.makeBooking(1, item1, user, BookingStatus.REJECTED);
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findAllByIdIn(List.of(1)))
+                .thenReturn(List.of(waiting))
+                .thenReturn(List.of(rejectedMeanwhile));
+        doThrow(new OptimisticLockingFailureException("1 of 1 bookings changed concurrently"))
+                .when(bookingRepository).changeStatus(List.of(1), BookingStatus.REJECTED);
+        List<BookingBatchResult> results = bookingService.changeAll(1, List.of(1), false);
+
+        Assertions.assertThat(results.get(0).getError()).isEqualTo("booking id N1 already has a changed status");
+        verify(bookingRepository, times(1)).changeStatus(any(), any());
+        verify(bookingIntervalIndex, never()).onStatusChanged(any(Booking.class));
     }
 
     @Test
-    void shouldGetBookingsByBooker() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository.findAllByBookerIdOrderByStartDesc(anyInt(), any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByBooker(1, "ALL", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldRejectOversizedBookingBatch() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        Assertions.assertThatThrownBy(() -> bookingService.changeAll(1,
+                        Collections.nCopies(BookingService.MAX_BATCH + 1, 1), true))
+                .isInstanceOf(BadRequestException.class);
+        verify(bookingRepository, never()).findAllByIdIn(any());
     }
 
     @Test
-    void shouldGetBookingsByBookerStatusCurrent() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(
-                        anyInt(),
-                        any(LocalDateTime.class),
-                        any(LocalDateTime.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByBooker(1, "CURRENT", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldGetBookingById() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findResponseByIdAndParticipant(5, 1))
+                .thenReturn(Optional.of(BookingMapper.toBookingResponse(booking)));
+        Assertions.assertThat(bookingService.getBookingById(1, 5)).isEqualTo(BookingMapper.toBookingResponse(booking));
     }
 
     @Test
-    void shouldGetBookingsByBookerStatusPast() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByBookerIdAndEndBeforeOrderByStartDesc(
-                        anyInt(),
-                        any(LocalDateTime.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByBooker(1, "PAST", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldGetArchivedBookingById() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findResponseByIdAndParticipant(5, 1)).thenReturn(Optional.empty());
+        when(bookingRepository.findArchivedResponseByIdAndParticipant(5, 1))
+                .thenReturn(Optional.of(BookingMapper.toBookingResponse(booking)));
+        Assertions.assertThat(bookingService.getBookingById(1, 5)).isEqualTo(BookingMapper.toBookingResponse(booking));
     }
 
     @Test
-    void shouldGetBookingsByBookerStatusFuture() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByBookerIdAndStartAfterOrderByStartDesc(
-                        anyInt(),
-                        any(LocalDateTime.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByBooker(1, "FUTURE", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldHideBookingFromUserNotTakingPartInIt() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findResponseByIdAndParticipant(5, 1)).thenReturn(Optional.empty());
+        when(bookingRepository.existsById(5)).thenReturn(true);
+        Assertions.assertThatThrownBy(() -> bookingService.getBookingById(1, 5))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("user id N1");
     }
 
-    @Test
-    void shouldGetBookingsByBookerStatusWaiting() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByBookerIdAndStatusOrderByStartDesc(
-                        anyInt(),
-                        any(BookingStatus.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByBooker(1, "WAITING", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    @ParameterizedTest
+    @EnumSource(BookingState.class)
+    void shouldGetBookingsByOwnerInEveryState(BookingState state) {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findPage(any(), any(Pageable.class), eq(state.reachesArchive())))
+                .thenReturn(List.of(BookingMapper.toBookingResponse(booking)));
+        Assertions.assertThat(bookingService.getBookingsByOwner(1, state.name(), Pageable.unpaged()))
+                .isEqualTo(List.of(BookingMapper.toBookingResponse(booking)));
     }
 
     @Test
-    void shouldGetBookingsByBookerStatusRejected() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
-        when(bookingRepository
-                .findAllByBookerIdAndStatusOrderByStartDesc(
-                        anyInt(),
-                        any(BookingStatus.class),
-                        any(Pageable.class)))
-                .thenReturn(List.of(booking));
-        Assertions.assertThat(bookingService.getBookingsByBooker(1, "REJECTED", Pageable.unpaged()))
-                .isEqualTo(List.of(booking));
+    void shouldThrowBadRequestExceptionByUnknownStatusBookingOfOwner() {
+        when(userCache.get(anyInt())).thenReturn(user);
+        Assertions.assertThatThrownBy(
+                        () -> bookingService.getBookingsByOwner(1, "popopo", Pageable.unpaged()))
+                .isInstanceOf(BadRequestException.class
+                );
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingState.class)
+    void shouldGetBookingsByBookerInEveryState(BookingState state) {
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(bookingRepository.findPage(any(), any(Pageable.class), eq(state.reachesArchive())))
+                .thenReturn(List.of(BookingMapper.toBookingResponse(booking)));
+        Assertions.assertThat(bookingService.getBookingsByBooker(1, state.name(), Pageable.unpaged()))
+                .isEqualTo(List.of(BookingMapper.toBookingResponse(booking)));
     }
 
     @Test
     void shouldThrowBadRequestExceptionByUnknownStatus() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         Assertions.assertThatThrownBy(
                         () -> bookingService.getBookingsByBooker(1, "popopo", Pageable.unpaged()))
                 .isInstanceOf(BadRequestException.class
@@ -243,7 +299,7 @@ public class BookingServiceTest {
     @Test
     void shouldThrowBadRequestException() {
         booking.setStatus(BookingStatus.APPROVED);
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
         Assertions.assertThatThrownBy(() -> bookingService.change(1, 1, true)).isInstanceOf(BadRequestException.class);
     }
@@ -254,7 +310,7 @@ public class BookingServiceTest {
         Item item2 = UtilsForTest.makeItem(1, true, user2, itemRequest);
 
         booking.setItem(item2);
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(bookingRepository.findById(anyInt())).thenReturn(Optional.of(booking));
         Assertions.assertThatThrownBy(() -> bookingService.change(1, 1, true)).isInstanceOf(NotFoundException.class);
     }
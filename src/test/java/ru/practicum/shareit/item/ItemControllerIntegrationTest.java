@@ -18,7 +18,9 @@ import ru.practicum.shareit.item.exception.ErrorHandler;
 import ru.practicum.shareit.item.comment.CommentDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.SharerUserArgumentResolver;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
 import ru.practicum.shareit.user.UserService;
 
 import java.time.LocalDateTime;
@@ -37,6 +39,7 @@ public class ItemControllerIntegrationTest {
     private MockMvc mockMvc;
     private final ItemController itemController;
     private final UserService userService;
+    private final UserCache userCache;
     private final String userIdHeader = "X-Sharer-User-Id";
 
 
@@ -45,6 +48,7 @@ public class ItemControllerIntegrationTest {
         mockMvc = MockMvcBuilders
                 .standaloneSetup(itemController)
                 .setControllerAdvice(ErrorHandler.class)
+                .setCustomArgumentResolvers(new SharerUserArgumentResolver(userCache))
                 .build();
     }
 
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,31 +16,47 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.shareit.UtilsForTest;
 import ru.practicum.shareit.item.comment.CommentDto;
+import ru.practicum.shareit.item.dto.ItemBatchResult;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.exception.ErrorHandler;
 import ru.practicum.shareit.item.exception.NotFoundException;
+import ru.practicum.shareit.user.SharerUserArgumentResolver;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.Pagination;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 public class ItemControllerTest {
     private final String userIdHeader = "X-Sharer-User-Id";
 
-    private final ObjectMapper objectMapper = new ObjectMapper()
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule());
     private MockMvc mockMvc;
 
     @Mock
     private ItemService itemService;
 
+    @Mock
+    private UserCache userCache;
+
     @InjectMocks
     private ItemController itemController;
 
@@ -47,7 +64,10 @@ public class ItemControllerTest {
     void setMockMvc() {
         mockMvc = MockMvcBuilders.standaloneSetup(itemController)
                 .setControllerAdvice(ErrorHandler.class)
+                .setCustomArgumentResolvers(new SharerUserArgumentResolver(userCache))
                 .build();
+        lenient().when(userCache.get(anyInt()))
+                .thenAnswer(invocation -> UtilsForTest.makeUser(invocation.getArgument(0)));
     }
 
     @Test
@@ -69,6 +89,27 @@ public class ItemControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(itemDto)));
     }
 
+    @Test
+    void shouldPostItemBatch() throws Exception {
+        ItemDto itemDto = new ItemDto(null, "test", "test item", true,
+                null, null, null, null);
+        ItemDto created = new ItemDto(51, "test", "test item", true,
+                null, null, null, null);
+        List<ItemBatchResult> results = List.of(ItemBatchResult.created(0, created),
+                ItemBatchResult.rejected(1, "the item is missing"));
+
+        when(itemService.createItems(1, Arrays.asList(itemDto, null))).thenReturn(results);
+
+        mockMvc.perform(post("/items/batch")
+                        .header(userIdHeader, 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Arrays.asList(itemDto, null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].item.id").value(51))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].error").value("the item is missing"));
+    }
+
     @Test
     void shouldReturnNotFound() throws Exception {
         int userId = 1;
@@ -114,12 +155,32 @@ public class ItemControllerTest {
 
         List<ItemDto> itemsDto = List.of(itemDto1, itemDto2, itemDto3);
 
-        Pageable page = Pageable.unpaged();
-        when(itemService.getAllItemsUser(1, page)).thenReturn(itemsDto);
+        doAnswer(invocation -> {
+            itemsDto.forEach(invocation.<Consumer<ItemDto>>getArgument(1));
+            return null;
+        }).when(itemService).streamAllItemsUser(eq(1), any());
+
+        mockMvc.perform(get("/items")
+                        .header(userIdHeader, 1))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(itemsDto)));
+    }
+
+    @Test
+    void shouldReturnKeysetPageOfItems() throws Exception {
+        ItemDto itemDto1 = UtilsForTest.makeItemDto(4, true, 1);
+        ItemDto itemDto2 = UtilsForTest.makeItemDto(7, true, 2);
+
+        List<ItemDto> itemsDto = List.of(itemDto1, itemDto2);
+
+        when(itemService.getAllItemsUserAfter(1, Cursor.of(3), 2)).thenReturn(itemsDto);
 
         mockMvc.perform(get("/items")
+                        .queryParam("after", Cursor.of(3).encode())
+                        .queryParam("size", "2")
                         .header(userIdHeader, 1))
                 .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.NEXT_CURSOR_HEADER, Cursor.of(7).encode()))
                 .andExpect(content().json(objectMapper.writeValueAsString(itemsDto)));
     }
 
@@ -156,8 +217,10 @@ public class ItemControllerTest {
         List<ItemDto> itemsDto = List.of(itemDto1, itemDto2, itemDto3);
         String searchText = "item";
 
-        Pageable page = Pageable.unpaged();
-        when(itemService.searchByText(userId, searchText, page)).thenReturn(itemsDto);
+        doAnswer(invocation -> {
+            itemsDto.forEach(invocation.<Consumer<ItemDto>>getArgument(2));
+            return null;
+        }).when(itemService).streamSearchByText(eq(userId), eq(searchText), any());
 
         mockMvc.perform(get("/items/search")
                         .header(userIdHeader, userId)
@@ -0,0 +1,115 @@
+package ru.practicum.shareit.item;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.QueryCounter;
+import ru.practicum.shareit.item.exception.NotFoundException;
+import ru.practicum.shareit.item.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class ItemDetailsFanOutTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final ItemDetailsFanOut fanOut = new ItemDetailsFanOut(executor, true, Duration.ofMillis(500));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRunQueriesSideBySide() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        Supplier<Boolean> first = fanOut.fork("first", () -> awaitOther(bothStarted));
+        Supplier<Boolean> second = fanOut.fork("second", () -> awaitOther(bothStarted));
+
+        Assertions.assertThat(first.get()).isTrue();
+        Assertions.assertThat(second.get()).isTrue();
+    }
+
+    @Test
+    void shouldFailSlowQuery() {
+        Supplier<String> slow = fanOut.fork("comments", () -> {
+            sleep(2_000);
+            return "late";
+        });
+
+        Assertions.assertThatThrownBy(slow::get)
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("comments");
+    }
+
+    @Test
+    void shouldReleaseWorkerOfTimedOutQuery() {
+        ExecutorService singleWorker = Executors.newSingleThreadExecutor();
+        try {
+            ItemDetailsFanOut oneAtATime = new ItemDetailsFanOut(singleWorker, true, Duration.ofMillis(500));
+            Supplier<String> slow = oneAtATime.fork("comments", () -> {
+                sleep(10_000);
+                return "late";
+            });
+            Assertions.assertThatThrownBy(slow::get).isInstanceOf(ServiceUnavailableException.class);
+
+            Supplier<String> next = oneAtATime.fork("bookings", () -> "on time");
+
+            Assertions.assertThat(next.get()).isEqualTo("on time");
+        } finally {
+            singleWorker.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRethrowQueryException() {
+        Supplier<String> failing = fanOut.fork("bookings", () -> {
+            throw new NotFoundException("item id N1");
+        });
+
+        Assertions.assertThatThrownBy(failing::get).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void shouldRunInlineWhenSequential() {
+        ItemDetailsFanOut sequential = new ItemDetailsFanOut(command -> {
+            throw new AssertionError("no executor in sequential mode");
+        }, false, Duration.ofMillis(500));
+        Thread caller = Thread.currentThread();
+
+        Assertions.assertThat(sequential.fork("comments", Thread::currentThread).get()).isSameAs(caller);
+    }
+
+    @Test
+    void shouldCountStatementsOfForkedQueriesInCallerScope() {
+        QueryCounter queryCounter = new QueryCounter();
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            fanOut.fork("comments", () -> queryCounter.inspect("select 1")).get();
+            fanOut.fork("bookings", () -> queryCounter.inspect("select 2")).get();
+
+            Assertions.assertThat(scope.count()).isEqualTo(2);
+        }
+    }
+
+    private static boolean awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        try {
+            return bothStarted.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,16 +6,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.item.comment.Comment;
+import ru.practicum.shareit.item.comment.CommentRepository;
+import ru.practicum.shareit.item.comment.CommentView;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemSearchView;
+import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,6 +43,9 @@ public class ItemRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CommentRepository commentRepository;
+
     @Test
     void shouldReturnAllItemsByText() {
         EntityManager entityManager = testEntityManager.getEntityManager();
@@ -42,7 +56,7 @@ public class ItemRepositoryTest {
                 "AND i.available IS TRUE", Item.class);
 
         User user = UtilsForTest.makeUser(1);
-        userRepository.save(user);
+        user = userRepository.save(user);
         Item item1 = Item.builder()
                 .id(1)
                 .name("item")
@@ -75,4 +89,66 @@ public class ItemRepositoryTest {
         assertThat(itemRepository.findAllByText("item", Pageable.unpaged()))
                 .hasSize(2);
     }
+
+    @Test
+    void shouldReturnTheSamePageOfItemsByTextAsTheSearchIndex() {
+        User owner = testEntityManager.persist(new User(null, "owner", "owner@email.org"));
+        for (int i = 0; i < 10; i++) {
+            testEntityManager.persist(new Item(null, i % 3 == 0 ? "saw" : "drill " + i, "about", i % 4 != 1,
+                    null, owner, null));
+        }
+        ItemSearchIndex itemSearchIndex = new ItemSearchIndex(itemRepository);
+        itemSearchIndex.warmUp();
+        PageRequest page = PageRequest.of(1, 2);
+
+        List<Item> items = itemRepository.findAllByText("drill", page);
+
+        assertThat(items).extracting(Item::getId)
+                .hasSize(2)
+                .containsExactlyElementsOf(itemSearchIndex.search("drill", page).stream()
+                        .map(ItemDto::getId)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldReturnCommentsOfPageItemsNewestFirst() {
+        User owner = testEntityManager.persist(new User(null, "owner", "owner@email.org"));
+        User author = testEntityManager.persist(new User(null, "author", "author@email.org"));
+        Item item1 = testEntityManager.persist(new Item(null, "item1", "about", true, null, owner, null));
+        Item item2 = testEntityManager.persist(new Item(null, "item2", "about", true, null, owner, null));
+        Item item3 = testEntityManager.persist(new Item(null, "item3", "about", true, null, owner, null));
+        LocalDateTime now = LocalDateTime.now();
+        Comment older = testEntityManager.persist(new Comment(null, "older", item1, author, now.minusDays(1)));
+        Comment newer = testEntityManager.persist(new Comment(null, "newer", item1, author, now));
+        Comment other = testEntityManager.persist(new Comment(null, "other", item2, author, now));
+        testEntityManager.persist(new Comment(null, "skipped", item3, author, now));
+
+        List<CommentView> comments = commentRepository.findAllByItemIdIn(List.of(item1.getId(), item2.getId()));
+
+        assertThat(comments)
+                .extracting(CommentView::getId)
+                .containsExactlyInAnyOrder(older.getId(), newer.getId(), other.getId());
+        assertThat(comments)
+                .filteredOn(comment -> comment.getItemId().equals(item1.getId()))
+                .extracting(CommentView::getId)
+                .containsExactly(newer.getId(), older.getId());
+        assertThat(comments.get(0).getAuthorName()).isEqualTo("author");
+    }
+
+    @Test
+    void shouldReturnAvailableItemsForSearchIndexAfterId() {
+        User owner = testEntityManager.persist(new User(null, "owner", "owner@email.org"));
+        ItemRequest request = testEntityManager.persist(new ItemRequest(null, LocalDateTime.now(), "need", owner));
+        Item item1 = testEntityManager.persist(new Item(null, "item1", "about", true, request, owner, null));
+        testEntityManager.persist(new Item(null, "item2", "about", false, null, owner, null));
+        Item item3 = testEntityManager.persist(new Item(null, "item3", null, true, null, owner, null));
+        Item item4 = testEntityManager.persist(new Item(null, "item4", "about", true, null, owner, null));
+
+        List<ItemSearchView> firstBatch = itemRepository.findAvailableForSearch(item1.getId() - 1, PageRequest.of(0, 2));
+        List<ItemSearchView> secondBatch = itemRepository.findAvailableForSearch(item3.getId(), PageRequest.of(0, 2));
+
+        assertThat(firstBatch).extracting(ItemSearchView::getId).containsExactly(item1.getId(), item3.getId());
+        assertThat(firstBatch).extracting(ItemSearchView::getRequestId).containsExactly(request.getId(), null);
+        assertThat(secondBatch).extracting(ItemSearchView::getId).containsExactly(item4.getId());
+    }
 }
@@ -1,15 +1,22 @@
 package ru.practicum.shareit.item;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.UtilsForTest;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
 import ru.practicum.shareit.booking.BookingMapper;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
@@ -18,20 +25,41 @@ import ru.practicum.shareit.item.comment.Comment;
 import ru.practicum.shareit.item.comment.CommentDto;
 import ru.practicum.shareit.item.comment.CommentMapper;
 import ru.practicum.shareit.item.comment.CommentRepository;
+import ru.practicum.shareit.item.dto.ItemBatchResult;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.exception.BadRequestException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.request.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.repository.UserRepository;
-
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.utils.Cursor;
+import ru.practicum.shareit.utils.ItemLockManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,7 +69,7 @@ public class ItemServiceTest {
     ItemRepository itemRepository;
 
     @Mock
-    UserRepository userRepository;
+    UserCache userCache;
 
     @Mock
     BookingRepository bookingRepository;
@@ -52,6 +80,36 @@ public class ItemServiceTest {
     @Mock
     ItemRequestRepository itemRequestRepository;
 
+    @Mock
+    ItemSearchIndex itemSearchIndex;
+
+    @Spy
+    ItemLockManager itemLockManager = new ItemLockManager(new SimpleMeterRegistry());
+
+    @Spy
+    TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    ItemSearchCache itemSearchCache = new ItemSearchCache();
+
+    @Spy
+    ItemDetailsFanOut itemDetailsFanOut = new ItemDetailsFanOut(Runnable::run, true, Duration.ofSeconds(1));
+
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    Cache cache;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    BookingIntervalIndex bookingIntervalIndex;
+
     @InjectMocks
     ItemService itemService;
 
@@ -62,17 +120,64 @@ public class ItemServiceTest {
         ItemRequest itemRequest = UtilsForTest.makeItemRequest(1, user);
         Item item = UtilsForTest.makeItem(1, true, user, itemRequest);
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRequestRepository.findById(anyInt())).thenReturn(Optional.ofNullable(itemRequest));
         when(itemRepository.save(any(Item.class))).thenReturn(item);
         Assertions.assertThat(itemService.createItem(1, itemDto1)).isEqualTo(itemDto1);
     }
 
+    @Test
+    void shouldCreateValidRowsOfBatchAndRejectTheOthers() {
+        User user = UtilsForTest.makeUser(1);
+        ItemRequest itemRequest = UtilsForTest.makeItemRequest(1, user);
+        List<ItemDto> rows = new ArrayList<>();
+        for (int i = 0; i < Item.ID_BLOCK + 1; i++) {
+            rows.add(UtilsForTest.makeItemDto(0, true, 1));
+        }
+        rows.add(1, UtilsForTest.makeItemDto(0, true, 2));
+        rows.add(2, null);
+        ItemDto blankName = UtilsForTest.makeItemDto(0, true, 1);
+        blankName.setName(" ");
+        rows.add(blankName);
+        AtomicInteger ids = new AtomicInteger();
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemRequestRepository.findAllById(List.of(1, 2))).thenReturn(List.of(itemRequest));
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Item.class).setId(ids.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(Item.class));
+        List<ItemBatchResult> results = itemService.createItems(1, rows);
+
+        Assertions.assertThat(results).hasSize(rows.size());
+        Assertions.assertThat(results).extracting(ItemBatchResult::getIndex)
+                .containsExactlyElementsOf(IntStream.range(0, rows.size()).boxed().collect(Collectors.toList()));
+        Assertions.assertThat(results.get(0).getItem().getId()).isEqualTo(1);
+        Assertions.assertThat(results.get(0).getItem().getRequestId()).isEqualTo(1);
+        Assertions.assertThat(results.get(1).getError()).isEqualTo("not found entity Request id N2");
+        Assertions.assertThat(results.get(2).getError()).isEqualTo("the item is missing");
+        Assertions.assertThat(results.get(rows.size() - 1).getError()).startsWith("name ");
+        Assertions.assertThat(results.get(rows.size() - 2).getItem().getId()).isEqualTo(Item.ID_BLOCK + 1);
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void shouldRejectOversizedBatch() {
+        User user = UtilsForTest.makeUser(1);
+        List<ItemDto> rows = Collections.nCopies(ItemService.MAX_BATCH + 1, UtilsForTest.makeItemDto(0, true, 1));
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        Assertions.assertThatThrownBy(() -> itemService.createItems(1, rows))
+                .isInstanceOf(BadRequestException.class);
+        verify(entityManager, Mockito.never()).persist(any());
+    }
+
     @Test
     void shouldReturnNotFoundUser() {
         ItemDto itemDto1 = UtilsForTest.makeItemDto(1, true, 1);
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(userCache.get(anyInt())).thenThrow(new NotFoundException("user id N1"));
         Assertions.assertThatThrownBy(() -> itemService.createItem(1, itemDto1))
                 .isInstanceOf(NotFoundException.class);
     }
@@ -82,7 +187,7 @@ public class ItemServiceTest {
         User user = UtilsForTest.makeUser(1);
 
         ItemDto itemDto1 = UtilsForTest.makeItemDto(1, true, 1);
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRequestRepository.findById(anyInt())).thenReturn(Optional.empty());
         Assertions.assertThatThrownBy(() -> itemService.createItem(1, itemDto1))
                 .isInstanceOf(NotFoundException.class);
@@ -100,7 +205,7 @@ public class ItemServiceTest {
         itemDto1.setNextBooking(BookingMapper.toPartBookingDto(booking));
         itemDto1.setComments(List.of(CommentMapper.toCommentDto(comment)));
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRepository.findById(anyInt())).thenReturn(Optional.of(item));
         when(bookingRepository.findAllByItemIdOrderByStart(anyInt())).thenReturn(List.of(booking));
         when(commentRepository.findAllByItemIdOrderByCreatedDesc(anyInt())).thenReturn(List.of(comment));
@@ -128,20 +233,41 @@ public class ItemServiceTest {
         itemDto2.setNextBooking(BookingMapper.toPartBookingDto(booking));
         itemDto2.setComments(List.of(CommentMapper.toCommentDto(comment)));
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRepository.findAllByOwnerId(anyInt(), any(Pageable.class))).thenReturn(items);
-        when(bookingRepository.findAllByItemIdOrderByStart(anyInt())).thenReturn(List.of(booking));
-        when(commentRepository.findAllByItemIdOrderByCreatedDesc(anyInt())).thenReturn(List.of(comment));
+        when(bookingRepository.findLastBookings(anyCollection(), any(LocalDateTime.class))).thenReturn(List.of());
+        when(bookingRepository.findNextBookings(anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of(UtilsForTest.makePartBookingView(1, booking),
+                        UtilsForTest.makePartBookingView(2, booking)));
+        when(commentRepository.findAllByItemIdIn(anyCollection()))
+                .thenReturn(List.of(UtilsForTest.makeCommentView(1, comment),
+                        UtilsForTest.makeCommentView(2, comment)));
         Assertions.assertThat(itemService.getAllItemsUser(1, Pageable.unpaged())).isEqualTo(itemDtos);
     }
 
+    @Test
+    void shouldReturnItemsAfterCursor() {
+        User user = UtilsForTest.makeUser(1);
+        Item item = UtilsForTest.makeItem(5, true, user, null);
+        ItemDto itemDto = ItemMapper.toItemDto(item);
+        itemDto.setComments(List.of());
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemRepository.findAllByOwnerIdAndIdGreaterThanOrderById(1, 4, PageRequest.of(0, 10)))
+                .thenReturn(List.of(item));
+        Assertions.assertThat(itemService.getAllItemsUserAfter(1, Cursor.of(4), 10)).isEqualTo(List.of(itemDto));
+    }
+
     @Test
     void shouldDeleteUser() {
         User user = UtilsForTest.makeUser(1);
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
         itemService.delete(1, 1);
         verify(itemRepository, Mockito.times(1)).deleteById(1);
+        verify(cache).evict(Item.class, 1);
+        verify(bookingIntervalIndex).evict(1);
     }
 
     @Test
@@ -154,12 +280,32 @@ public class ItemServiceTest {
 
         ItemDto itemDto2 = ItemMapper.toItemDto(item2);
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRepository.findById(anyInt())).thenReturn(Optional.of(item1));
         when(itemRepository.save(any(Item.class))).thenReturn(item2);
         Assertions.assertThat(itemService.change(1, 1, itemDto2)).isEqualTo(itemDto2);
     }
 
+    @Test
+    void shouldRetryChangeAfterConcurrentModification() {
+        User user = UtilsForTest.makeUser(1);
+        ItemRequest itemRequest = UtilsForTest.makeItemRequest(1, user);
+        Item item1 = UtilsForTest.makeItem(1, true, user, itemRequest);
+        Item item2 = UtilsForTest.makeItem(1, true, user, itemRequest);
+        item2.setDescription("new description");
+
+        ItemDto itemDto2 = ItemMapper.toItemDto(item2);
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemRepository.findById(anyInt())).thenReturn(Optional.of(item1));
+        when(itemRepository.save(any(Item.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Item.class, 1))
+                .thenReturn(item2);
+
+        Assertions.assertThat(itemService.change(1, 1, itemDto2)).isEqualTo(itemDto2);
+        verify(itemRepository, times(2)).findById(1);
+    }
+
     @Test
     void shouldReturnAllItemByText() {
         User user = UtilsForTest.makeUser(1);
@@ -174,12 +320,45 @@ public class ItemServiceTest {
         ItemDto itemDto2 = ItemMapper.toItemDto(item2);
         List<ItemDto> itemDtos = List.of(itemDto1, itemDto2);
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRepository.findAllByText(textForSearch, Pageable.unpaged())).thenReturn(items);
         Assertions.assertThat(itemService.searchByText(1, textForSearch, Pageable.unpaged()))
                 .isEqualTo(itemDtos);
     }
 
+    @Test
+    void shouldSearchInWarmIndexWithoutDatabase() {
+        User user = UtilsForTest.makeUser(1);
+        ItemDto itemDto = UtilsForTest.makeItemDto(1, true, 1);
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemSearchIndex.isWarm()).thenReturn(true);
+        when(itemSearchIndex.search("item", Pageable.unpaged())).thenReturn(List.of(itemDto));
+        Assertions.assertThat(itemService.searchByText(1, "item", Pageable.unpaged()))
+                .isEqualTo(List.of(itemDto));
+        verify(itemRepository, Mockito.never()).findAllByText(any(), any());
+    }
+
+    @Test
+    void shouldServeRepeatedSearchFromCacheUntilMatchingItemChanges() {
+        User user = UtilsForTest.makeUser(1);
+        Item item = UtilsForTest.makeItem(1, true, user, null);
+        Pageable page = PageRequest.of(0, 10);
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemRepository.findAllByText(any(), any())).thenReturn(List.of(item));
+        when(itemRepository.findById(1)).thenReturn(Optional.of(item));
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        itemService.searchByText(1, "Item", page);
+        itemService.searchByText(1, "ITEM", page);
+        verify(itemRepository, times(1)).findAllByText(any(), any());
+
+        itemService.delete(1, 1);
+        itemService.searchByText(1, "item", page);
+        verify(itemRepository, times(2)).findAllByText(any(), any());
+        Assertions.assertThat(itemSearchCache.getInvalidatedEntries()).isEqualTo(1);
+    }
+
     @Test
     void shouldWriteComment() {
         User user = UtilsForTest.makeUser(1);
@@ -195,11 +374,28 @@ public class ItemServiceTest {
         itemDto1.setNextBooking(BookingMapper.toPartBookingDto(booking));
         itemDto1.setComments(List.of(CommentMapper.toCommentDto(comment)));
 
-        when(userRepository.findById(anyInt())).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(anyInt())).thenReturn(user);
         when(itemRepository.findById(anyInt())).thenReturn(Optional.of(item1));
         when(bookingRepository.findAllByItemIdAndBookerIdAndEndBeforeOrderByStartDesc(anyInt(), anyInt(), any(LocalDateTime.class)))
                 .thenReturn(List.of(booking));
         when(commentRepository.save(any(Comment.class))).thenReturn(comment);
         Assertions.assertThat(itemService.writeComment(1, 1, commentDto)).isEqualTo(commentDto);
     }
+
+    @Test
+    void shouldAllowCommentOfBookerWhoseBookingIsArchived() {
+        User user = UtilsForTest.makeUser(1);
+        Item item1 = UtilsForTest.makeItem(1, true, user, null);
+        Comment comment = UtilsForTest.makeComment(1, item1, user);
+        CommentDto commentDto = CommentMapper.toCommentDto(comment);
+
+        when(userCache.get(anyInt())).thenReturn(user);
+        when(itemRepository.findById(anyInt())).thenReturn(Optional.of(item1));
+        when(bookingRepository.findAllByItemIdAndBookerIdAndEndBeforeOrderByStartDesc(anyInt(), anyInt(), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        when(bookingRepository.existsArchivedByItemIdAndBookerIdAndEndBefore(anyInt(), anyInt(), any(LocalDateTime.class)))
+                .thenReturn(true);
+        when(commentRepository.save(any(Comment.class))).thenReturn(comment);
+        Assertions.assertThat(itemService.writeComment(1, 1, commentDto)).isEqualTo(commentDto);
+    }
 }
@@ -0,0 +1,143 @@
+package ru.practicum.shareit.item.search;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class ItemSearchCacheTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger searches = new AtomicInteger();
+    private ItemSearchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ItemSearchCache(3, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    void shouldServeSameTextInAnyCaseFromCache() {
+        List<ItemDto> first = cache.get("Drill", PageRequest.of(0, 2), search(1, 2));
+
+        Assertions.assertThat(cache.get("dRiLL", PageRequest.of(0, 2), search(1, 2))).isSameAs(first);
+        Assertions.assertThat(searches).hasValue(1);
+        Assertions.assertThat(cache.getHits()).isEqualTo(1);
+        Assertions.assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepPagesApart() {
+        cache.get("drill", PageRequest.of(0, 2), search(1, 2));
+        cache.get("drill", PageRequest.of(1, 2), search(3, 4));
+        cache.get("drill", Pageable.unpaged(), search(1, 2, 3, 4));
+
+        Assertions.assertThat(searches).hasValue(3);
+        Assertions.assertThat(cache.getSize()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldDropOnlyPagesOfMatchingQueriesReachingTheItem() {
+        cache.get("drill", PageRequest.of(0, 2), search(1, 2));
+        cache.get("drill", PageRequest.of(1, 2), search(5, 6));
+        cache.get("ladder", PageRequest.of(0, 2), search(3));
+
+        cache.onChanged(4, null, snapshot(true, "Cordless drill"));
+
+        Assertions.assertThat(cache.getInvalidatedEntries()).isEqualTo(1);
+        cache.get("drill", PageRequest.of(0, 2), search(1, 2));
+        cache.get("ladder", PageRequest.of(0, 2), search(3));
+        Assertions.assertThat(searches).hasValue(3);
+        cache.get("drill", PageRequest.of(1, 2), search(4, 5));
+        Assertions.assertThat(searches).hasValue(4);
+    }
+
+    @Test
+    void shouldDropPagesTheItemLeaves() {
+        cache.get("drill", PageRequest.of(0, 2), search(1, 2));
+
+        cache.onChanged(2, snapshot(true, "drill"), snapshot(true, "hammer"));
+
+        Assertions.assertThat(cache.getInvalidatedEntries()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreUnavailableItems() {
+        cache.get("drill", Pageable.unpaged(), search(1));
+
+        cache.onChanged(2, null, snapshot(false, "drill"));
+        cache.onChanged(3, null, snapshot(true, "hammer"));
+
+        Assertions.assertThat(cache.getInvalidatedEntries()).isZero();
+    }
+
+    @Test
+    void shouldDropEverythingOnNewGeneration() {
+        cache.get("drill", Pageable.unpaged(), search(1));
+        cache.get("ladder", Pageable.unpaged(), search(2));
+
+        cache.invalidateAll();
+        cache.get("drill", Pageable.unpaged(), search(1));
+        cache.get("ladder", Pageable.unpaged(), search(2));
+
+        Assertions.assertThat(searches).hasValue(4);
+        Assertions.assertThat(cache.getGeneration()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheResultOfSearchOverlappingWrite() {
+        cache.get("drill", Pageable.unpaged(), () -> {
+            cache.onChanged(1, null, snapshot(true, "hammer"));
+            return search(1).get();
+        });
+        cache.get("drill", Pageable.unpaged(), search(1));
+
+        Assertions.assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    void shouldSearchAgainAfterTimeToLive() {
+        cache.get("drill", Pageable.unpaged(), search(1));
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        cache.get("drill", Pageable.unpaged(), search(1));
+
+        Assertions.assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBeyondMaxSize() {
+        cache.get("a", Pageable.unpaged(), search(1));
+        cache.get("b", Pageable.unpaged(), search(2));
+        cache.get("c", Pageable.unpaged(), search(3));
+        cache.get("a", Pageable.unpaged(), search(1));
+        cache.get("d", Pageable.unpaged(), search(4));
+
+        Assertions.assertThat(cache.getEvictions()).isEqualTo(1);
+        cache.get("a", Pageable.unpaged(), search(1));
+        Assertions.assertThat(searches).hasValue(4);
+    }
+
+    private Supplier<List<ItemDto>> search(int... ids) {
+        return () -> {
+            searches.incrementAndGet();
+            List<ItemDto> items = new ArrayList<>();
+            for (int id : ids) {
+                items.add(ItemDto.builder().id(id).name("item " + id).available(true).build());
+            }
+            return items;
+        };
+    }
+
+    private static ItemSearchCache.Snapshot snapshot(boolean available, String name) {
+        return ItemSearchCache.Snapshot.of(Item.builder().name(name).description("").available(available).build());
+    }
+}
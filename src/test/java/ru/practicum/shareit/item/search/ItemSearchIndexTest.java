@@ -0,0 +1,142 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.User;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemSearchIndexTest {
+    @Mock
+    private ItemRepository itemRepository;
+
+    @InjectMocks
+    private ItemSearchIndex itemSearchIndex;
+
+    private User user;
+
+    @BeforeEach
+    void createEntityForTest() {
+        user = UtilsForTest.makeUser(1);
+    }
+
+    @Test
+    void shouldFindItemsBySubstringOfNameOrDescriptionIgnoringCase() {
+        itemSearchIndex.onSaved(makeItem(1, "Drill", "powerful tool", true));
+        itemSearchIndex.onSaved(makeItem(2, "Ladder", "for a DRILLING job", true));
+        itemSearchIndex.onSaved(makeItem(3, "Saw", "sharp", true));
+
+        assertThat(ids(itemSearchIndex.search("dRiL", Pageable.unpaged()))).containsExactly(1, 2);
+        assertThat(ids(itemSearchIndex.search("tool", Pageable.unpaged()))).containsExactly(1);
+        assertThat(ids(itemSearchIndex.search("hammer", Pageable.unpaged()))).isEmpty();
+    }
+
+    @Test
+    void shouldAnswerQueriesShorterThanTrigram() {
+        itemSearchIndex.onSaved(makeItem(1, "Drill", "tool", true));
+        itemSearchIndex.onSaved(makeItem(2, "Saw", "sharp", true));
+
+        assertThat(ids(itemSearchIndex.search("S", Pageable.unpaged()))).containsExactly(2);
+        assertThat(ids(itemSearchIndex.search("oo", Pageable.unpaged()))).containsExactly(1);
+    }
+
+    @Test
+    void shouldNotReturnFalsePositivesOfTrigramIntersection() {
+        itemSearchIndex.onSaved(makeItem(1, "abcd xbcde", "", true));
+
+        assertThat(ids(itemSearchIndex.search("abcde", Pageable.unpaged()))).isEmpty();
+        assertThat(ids(itemSearchIndex.search("xbcde", Pageable.unpaged()))).containsExactly(1);
+    }
+
+    @Test
+    void shouldPageResultsInIdOrder() {
+        for (int id = 1; id <= 5; id++) {
+            itemSearchIndex.onSaved(makeItem(id, "item " + id, "about", true));
+        }
+
+        assertThat(ids(itemSearchIndex.search("item", PageRequest.of(1, 2)))).containsExactly(3, 4);
+        assertThat(ids(itemSearchIndex.search("it", PageRequest.of(2, 2)))).containsExactly(5);
+    }
+
+    @Test
+    void shouldIndexSavedItemsTogetherInAnyIdOrder() {
+        itemSearchIndex.onSaved(makeItem(5, "Drill", "tool", true));
+        itemSearchIndex.onSavedAll(List.of(makeItem(7, "Drill bit", "", true), makeItem(3, "Drill case", "", true),
+                makeItem(9, "Hidden drill", "", false), makeItem(5, "Drill", "tool", true)));
+
+        assertThat(ids(itemSearchIndex.search("drill", Pageable.unpaged()))).containsExactly(3, 5, 7);
+    }
+
+    @Test
+    void shouldFollowChangesAndDeletes() {
+        itemSearchIndex.onSaved(makeItem(1, "Drill", "tool", true));
+        itemSearchIndex.onSaved(makeItem(2, "Drill", "tool", true));
+
+        itemSearchIndex.onSaved(makeItem(1, "Hammer", "tool", true));
+        itemSearchIndex.onSaved(makeItem(2, "Drill", "tool", false));
+        assertThat(ids(itemSearchIndex.search("drill", Pageable.unpaged()))).isEmpty();
+        assertThat(ids(itemSearchIndex.search("hammer", Pageable.unpaged()))).containsExactly(1);
+
+        itemSearchIndex.onDeleted(1);
+        assertThat(ids(itemSearchIndex.search("tool", Pageable.unpaged()))).isEmpty();
+        assertThat(itemSearchIndex.size()).isZero();
+    }
+
+    @Test
+    void shouldBecomeWarmAfterLoadingAvailableItems() {
+        ItemSearchView view = new ItemSearchView() {
+            @Override
+            public Integer getId() {
+                return 7;
+            }
+
+            @Override
+            public String getName() {
+                return "Drill";
+            }
+
+            @Override
+            public String getDescription() {
+                return null;
+            }
+
+            @Override
+            public Integer getRequestId() {
+                return 3;
+            }
+        };
+        when(itemRepository.findAvailableForSearch(anyInt(), any(Pageable.class))).thenReturn(List.of(view));
+
+        assertThat(itemSearchIndex.isWarm()).isFalse();
+        itemSearchIndex.warmUp();
+
+        assertThat(itemSearchIndex.isWarm()).isTrue();
+        assertThat(itemSearchIndex.search("rill", Pageable.unpaged()))
+                .containsExactly(new ItemDto(7, "Drill", null, true, null, null, null, 3));
+    }
+
+    private Item makeItem(int id, String name, String description, boolean available) {
+        return new Item(id, name, description, available, null, user, null);
+    }
+
+    private List<Integer> ids(List<ItemDto> items) {
+        return items.stream().map(ItemDto::getId).collect(Collectors.toList());
+    }
+}
@@ -12,16 +12,20 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import ru.practicum.shareit.UtilsForTest;
-import ru.practicum.shareit.item.exception.ErrorHandler;
 import ru.practicum.shareit.item.ItemMapper;
+import ru.practicum.shareit.item.exception.ErrorHandler;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.user.SharerUserArgumentResolver;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
 
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -39,6 +43,9 @@ public class ItemRequestControllerTest {
     @Mock
     private ItemRequestService itemRequestService;
 
+    @Mock
+    private UserCache userCache;
+
     @InjectMocks
     private ItemRequestController itemRequestController;
 
@@ -46,7 +53,10 @@ public class ItemRequestControllerTest {
     void setMockMvc() {
         mockMvc = MockMvcBuilders.standaloneSetup(itemRequestController)
                 .setControllerAdvice(ErrorHandler.class)
+                .setCustomArgumentResolvers(new SharerUserArgumentResolver(userCache))
                 .build();
+        lenient().when(userCache.get(anyInt()))
+                .thenAnswer(invocation -> UtilsForTest.makeUser(invocation.getArgument(0)));
     }
 
     @Test
@@ -136,4 +146,22 @@ public class ItemRequestControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(itemRequestDto)));
     }
 
+    @Test
+    void shouldResolveSharerUserOncePerRequest() throws Exception {
+        when(itemRequestService.getAllByUser(1)).thenReturn(List.of());
+
+        mockMvc.perform(get("/requests")
+                        .header(userIdHeader, 1))
+                .andExpect(status().isOk());
+        verify(userCache).get(1);
+    }
+
+    @Test
+    void shouldRejectMissingOrMalformedSharerUser() throws Exception {
+        mockMvc.perform(get("/requests"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/requests")
+                        .header(userIdHeader, "abc"))
+                .andExpect(status().isBadRequest());
+    }
 }
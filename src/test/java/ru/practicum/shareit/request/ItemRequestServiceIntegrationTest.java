@@ -0,0 +1,81 @@
+package ru.practicum.shareit.request;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserCache;
+import ru.practicum.shareit.user.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase
+@Import({ItemRequestService.class, UserService.class, UserCache.class, ItemSearchCache.class,
+        BookingIntervalIndex.class, SimpleMeterRegistry.class})
+public class ItemRequestServiceIntegrationTest {
+    private static final int PAGE_SIZE = 10;
+    private static final int OLD_REQUESTS = 100;
+    private static final int UNRELATED_ITEMS = 100_000;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ItemRequestService itemRequestService;
+
+    @Test
+    void shouldLoadOnlyItemsAnsweringRequestsOfThePage() {
+        User requester = testEntityManager.persist(new User(null, "requester", "requester@email.org"));
+        User owner = testEntityManager.persist(new User(null, "owner", "owner@email.org"));
+        LocalDateTime now = LocalDateTime.now();
+        List<ItemRequest> oldRequests = new ArrayList<>();
+        for (int i = 0; i < OLD_REQUESTS; i++) {
+            oldRequests.add(testEntityManager.persist(
+                    new ItemRequest(null, now.minusDays(1).plusSeconds(i), "old request", requester)));
+        }
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            ItemRequest request = testEntityManager.persist(
+                    new ItemRequest(null, now.plusSeconds(i), "new request", requester));
+            testEntityManager.persist(new Item(null, "answer", "about", true, request, owner, null));
+        }
+        testEntityManager.flush();
+        List<Object[]> unrelatedItems = new ArrayList<>();
+        for (int i = 0; i < UNRELATED_ITEMS; i++) {
+            unrelatedItems.add(new Object[]{"item" + i, owner.getId(), oldRequests.get(i % OLD_REQUESTS).getId()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO items (name, description, available, owner_id, request_id) " +
+                "VALUES (?, 'about', TRUE, ?, ?)", unrelatedItems);
+        testEntityManager.clear();
+        Statistics statistics = testEntityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ItemRequestDto> page = itemRequestService.getAll(owner.getId(), 0, PAGE_SIZE);
+
+        assertThat(page).hasSize(PAGE_SIZE);
+        assertThat(page).allSatisfy(request -> assertThat(request.getItems()).hasSize(1));
+        assertThat(statistics.getEntityStatistics(Item.class.getName()).getLoadCount()).isEqualTo(PAGE_SIZE);
+    }
+}
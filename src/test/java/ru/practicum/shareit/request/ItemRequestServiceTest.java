@@ -71,7 +71,7 @@ public class ItemRequestServiceTest {
         List<ItemRequestDto> itemRequestDtos = List.of(itemRequestDto2, itemRequestDto);
 
         when(userService.getUserById(anyInt())).thenReturn(user);
-        when(itemRepository.findAllWithRequestNotNull()).thenReturn(items);
+        when(itemRepository.findAllByRequestIdIn(List.of(2, 1))).thenReturn(items);
         when(itemRequestRepository.findAllByUserIdIsNot(user.getId(), page)).thenReturn(List.of(itemRequest2, itemRequest));
 
         Assertions.assertThat(itemRequestService.getAll(1, from, size)).isEqualTo(itemRequestDtos);
@@ -81,23 +81,18 @@ public class ItemRequestServiceTest {
     void shouldReturnAllItemRequestByUser() {
         int userId = 1;
         User user = UtilsForTest.makeUser(userId);
-        User user2 = UtilsForTest.makeUser(2);
 
         ItemRequest itemRequest = UtilsForTest.makeItemRequest(1, user);
-        ItemRequest itemRequest2 = UtilsForTest.makeItemRequest(2, user2);
 
         Item item1 = UtilsForTest.makeItem(1, true, user, itemRequest);
-        Item item2 = UtilsForTest.makeItem(2, true, user, itemRequest2);
-        List<Item> items = List.of(item1, item2);
 
         ItemRequestDto itemRequestDto = ItemRequestMapper.toItemRequestDto(itemRequest);
         itemRequestDto.setItems(List.of(ItemMapper.toItemDto(item1)));
 
-
         List<ItemRequestDto> itemRequestDtos = List.of(itemRequestDto);
 
         when(userService.getUserById(anyInt())).thenReturn(user);
-        when(itemRepository.findAllByRequestIdNotNull()).thenReturn(items);
+        when(itemRepository.findAllByRequestIdIn(List.of(1))).thenReturn(List.of(item1));
         when(itemRequestRepository.findAllByUserIdOrderByCreatedDesc(userId)).thenReturn(List.of(itemRequest));
 
         Assertions.assertThat(itemRequestService.getAllByUser(userId)).isEqualTo(itemRequestDtos);
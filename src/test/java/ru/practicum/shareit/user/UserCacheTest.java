@@ -0,0 +1,130 @@
+package ru.practicum.shareit.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.item.exception.NotFoundException;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserCacheTest {
+    @Mock
+    UserRepository userRepository;
+
+    private final AtomicLong clock = new AtomicLong();
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new UserCache(userRepository, TransactionOperations.withoutTransaction(), false, 2,
+                Duration.ofSeconds(10), clock::get);
+        lenient().when(userRepository.findById(anyInt()))
+                .thenAnswer(invocation -> Optional.of(UtilsForTest.makeUser(invocation.getArgument(0))));
+    }
+
+    @Test
+    void shouldLoadOnceAndServeRepeatedLookupsFromCache() {
+        User first = userCache.get(1);
+
+        Assertions.assertThat(userCache.get(1)).isSameAs(first);
+        verify(userRepository, times(1)).findById(1);
+        Assertions.assertThat(userCache.getHits()).isEqualTo(1);
+        Assertions.assertThat(userCache.getMisses()).isEqualTo(1);
+        Assertions.assertThat(userCache.getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void shouldReloadAfterTimeToLive() {
+        userCache.get(1);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        userCache.get(1);
+
+        verify(userRepository, times(2)).findById(1);
+        Assertions.assertThat(userCache.getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBeyondMaxSize() {
+        userCache.get(1);
+        userCache.get(2);
+        userCache.get(1);
+        userCache.get(3);
+
+        Assertions.assertThat(userCache.getSize()).isEqualTo(2);
+        Assertions.assertThat(userCache.getEvictions()).isEqualTo(1);
+        userCache.get(1);
+        userCache.get(2);
+        verify(userRepository, times(1)).findById(1);
+        verify(userRepository, times(2)).findById(2);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        userCache.get(1);
+        userCache.invalidate(1);
+        userCache.get(1);
+
+        verify(userRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void shouldNotCacheMissingUser() {
+        when(userRepository.findById(7)).thenReturn(Optional.empty());
+
+        Assertions.assertThatThrownBy(() -> userCache.get(7)).isInstanceOf(NotFoundException.class);
+        Assertions.assertThat(userCache.getSize()).isZero();
+    }
+
+    @Test
+    void shouldNotCacheUserReadFromReplica() {
+        UserCache replicatedCache = new UserCache(userRepository, TransactionOperations.withoutTransaction(), true, 2,
+                Duration.ofSeconds(10), clock::get);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            replicatedCache.get(1);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        replicatedCache.get(1);
+        replicatedCache.get(1);
+
+        verify(userRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void shouldExportCountersToMeterRegistry() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        userCache.registerMeters(meterRegistry);
+        userCache.get(1);
+        userCache.get(1);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        userCache.get(1);
+
+        Assertions.assertThat(meterRegistry.get("cache.gets").tag("cache", "user").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count())
+                .isEqualTo(2);
+        Assertions.assertThat(meterRegistry.get("cache.expirations").functionCounter().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("cache.hit.ratio").gauge().value()).isEqualTo(1.0 / 3);
+        Assertions.assertThat(meterRegistry.get("cache.size").gauge().value()).isEqualTo(1);
+    }
+}
@@ -8,10 +8,16 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.UtilsForTest;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
 import ru.practicum.shareit.item.exception.ConflictException;
 import ru.practicum.shareit.item.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchCache;
+import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,19 +32,34 @@ public class UserServiceTest {
     @Mock
     UserRepository userRepository;
 
+    @Mock
+    UserCache userCache;
+
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    Cache cache;
+
+    @Mock
+    ItemSearchCache itemSearchCache;
+
+    @Mock
+    BookingIntervalIndex bookingIntervalIndex;
+
     @InjectMocks
     UserService userService;
 
     @Test
     void shouldThrowNotFoundException() {
-        when(userRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(userCache.get(anyInt())).thenThrow(new NotFoundException("user id N12"));
         Assertions.assertThatThrownBy(() -> userService.getUserById(12)).isInstanceOf(NotFoundException.class);
     }
 
     @Test
     void shouldGetUser() {
         User user = UtilsForTest.makeUser(1);
-        when(userRepository.findById(1)).thenReturn(Optional.ofNullable(user));
+        when(userCache.get(1)).thenReturn(user);
         Assertions.assertThat(userService.getUserById(1)).isEqualTo(user);
     }
 
@@ -81,11 +102,19 @@ public class UserServiceTest {
         when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
         when(userRepository.save(any(User.class))).thenReturn(user);
         Assertions.assertThat(userService.change(1, newUser)).isEqualTo(user);
+        verify(userCache).invalidate(1);
     }
 
     @Test
     void shouldDeleteUser() {
+        when(entityManagerFactory.getCache()).thenReturn(cache);
         userService.delete(1);
         verify(userRepository, Mockito.times(1)).deleteById(1);
+        verify(userCache).invalidate(1);
+        verify(cache).evict(User.class, 1);
+        verify(cache).evict(Item.class);
+        verify(cache).evict(ItemRequest.class);
+        verify(bookingIntervalIndex).evictAll();
+        verify(itemSearchCache).invalidateAll();
     }
 }
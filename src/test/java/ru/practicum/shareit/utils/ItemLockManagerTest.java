@@ -0,0 +1,145 @@
+package ru.practicum.shareit.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ItemLockManagerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ItemLockManager itemLockManager = new ItemLockManager(meterRegistry);
+
+    @Test
+    void shouldSerializeSameItem() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        try {
+            List<Future<Object>> futures = executor.invokeAll(Collections.nCopies(200, () ->
+                    itemLockManager.withLock(1, () -> {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        Thread.yield();
+                        inside.decrementAndGet();
+                        return null;
+                    })));
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(maxInside.get()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("shareit.item.lock.wait").timer().count()).isEqualTo(200);
+        Assertions.assertThat(itemLockManager.heldLocks()).isZero();
+    }
+
+    @Test
+    void shouldNotBlockOtherItems() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> holder = executor.submit(() -> itemLockManager.withLock(1, () -> {
+                locked.countDown();
+                await(release);
+                return null;
+            }));
+            Assertions.assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Assertions.assertThat(itemLockManager.withLock(2, () -> "done")).isEqualTo("done");
+            Assertions.assertThat(itemLockManager.heldLocks()).isEqualTo(1);
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertThat(itemLockManager.heldLocks()).isZero();
+    }
+
+    @Test
+    void shouldTrackContendedItems() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> holder = executor.submit(() -> itemLockManager.withLock(7, () -> {
+                locked.countDown();
+                sleep();
+                return null;
+            }));
+            Assertions.assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+            itemLockManager.withLock(7, () -> null);
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(itemLockManager.getHotItems()).containsOnlyKeys(7);
+        Assertions.assertThat(meterRegistry.get("shareit.item.lock.wait").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isPositive();
+        Assertions.assertThat(meterRegistry.get("shareit.item.lock.hot.item").tag("rank", "1").gauge().value())
+                .isEqualTo(7);
+        Assertions.assertThat(meterRegistry.get("shareit.item.lock.hot.item").tag("rank", "2").gauge().value())
+                .isNaN();
+    }
+
+    @Test
+    void shouldLetItemContendedLateTakeThePlaceOfTheCoolest() {
+        for (int itemId = 1; itemId <= 1024; itemId++) {
+            itemLockManager.recordContended(itemId, TimeUnit.MILLISECONDS.toNanos(itemId == 1 ? 1 : 2));
+        }
+
+        itemLockManager.recordContended(5000, TimeUnit.MILLISECONDS.toNanos(50));
+
+        Assertions.assertThat(itemLockManager.getHotItems().entrySet().iterator().next())
+                .isEqualTo(Map.entry(5000, 51L));
+        Assertions.assertThat(meterRegistry.get("shareit.item.lock.hot.wait").tag("rank", "1").gauge().value())
+                .isEqualTo(0.051);
+    }
+
+    @Test
+    void shouldDecayContendedWaitsAndForgetCooledItems() {
+        itemLockManager.recordContended(1, TimeUnit.MILLISECONDS.toNanos(40));
+        itemLockManager.recordContended(2, 1);
+        itemLockManager.recordContended(3, TimeUnit.MILLISECONDS.toNanos(10));
+
+        itemLockManager.decayHotItems();
+        itemLockManager.recordContended(3, TimeUnit.MILLISECONDS.toNanos(30));
+
+        Assertions.assertThat(itemLockManager.getHotItems()).containsExactly(Map.entry(3, 35L), Map.entry(1, 20L));
+    }
+
+    @Test
+    void shouldReleaseAllLocksWhenActionFails() {
+        Assertions.assertThatThrownBy(() -> itemLockManager.withLocks(List.of(3, 1, 2, 1), () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(itemLockManager.heldLocks()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
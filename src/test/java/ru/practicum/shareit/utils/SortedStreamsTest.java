@@ -0,0 +1,32 @@
+package ru.practicum.shareit.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SortedStreamsTest {
+    @Test
+    void shouldMergeSortedStreamsInOrder() {
+        assertThat(SortedStreams.merge(Stream.of(9, 6, 5, 1), Stream.of(8, 6, 2), Comparator.reverseOrder())
+                .collect(Collectors.toList()))
+                .containsExactly(9, 8, 6, 6, 5, 2, 1);
+        assertThat(SortedStreams.merge(Stream.<Integer>empty(), Stream.of(2, 1), Comparator.reverseOrder())
+                .collect(Collectors.toList()))
+                .containsExactly(2, 1);
+    }
+
+    @Test
+    void shouldCloseBothStreams() {
+        AtomicInteger closed = new AtomicInteger();
+
+        SortedStreams.merge(Stream.of(1).onClose(closed::incrementAndGet), Stream.of(2).onClose(closed::incrementAndGet),
+                Comparator.<Integer>naturalOrder()).close();
+
+        assertThat(closed).hasValue(2);
+    }
+}